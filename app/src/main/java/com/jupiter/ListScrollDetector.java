@@ -0,0 +1,50 @@
+package com.jupiter;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+/**
+ * 判断列表是否滚动了，SlideCoordinator和SlideListLayout共用。
+ * 用第一个子view及其位置判断，行自己滚动（动态模式）或平移时不会改变它们
+ */
+abstract class ListScrollDetector implements ViewTreeObserver.OnScrollChangedListener {
+
+    private View mLastFirstChild;
+    private int mLastFirstTop;
+
+    //要检测的列表，没有时返回null
+    abstract ViewGroup getScrollingList();
+
+    //列表滚动了
+    abstract void onListScrolled();
+
+    /**
+     * 以列表当前的位置为起点
+     */
+    void reset() {
+        ViewGroup list = getScrollingList();
+        mLastFirstChild = list != null && list.getChildCount() > 0 ? list.getChildAt(0) : null;
+        mLastFirstTop = mLastFirstChild != null ? mLastFirstChild.getTop() : 0;
+    }
+
+    /**
+     * 不再引用列表的子view
+     */
+    void clear() {
+        mLastFirstChild = null;
+    }
+
+    @Override
+    public void onScrollChanged() {
+        ViewGroup list = getScrollingList();
+        if (list == null) return;
+        View first = list.getChildCount() > 0 ? list.getChildAt(0) : null;
+        int top = first != null ? first.getTop() : 0;
+        if (first != mLastFirstChild || top != mLastFirstTop) {
+            mLastFirstChild = first;
+            mLastFirstTop = top;
+            onListScrolled();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.jupiter;
+
+/**
+ * 按列表项的稳定id保存每一行的侧滑状态（偏移量），用于RecyclerView等复用view的场景。
+ * 绑定时调用{@link #applyState(SlideWrapper, long)}，直接把行恢复到该id的状态，没有动画，
+ * 不触发布局也不回调；拖到一半的行同样可以恢复。
+ * 内部是按id排序的long/int数组，只保存没有关闭的行，不装箱。只能在主线程使用
+ */
+public class OpenStateStore {
+
+    private long[] mKeys;
+    private int[] mOffsets;
+    private int mSize = 0;
+
+    public OpenStateStore() {
+        this(16);
+    }
+
+    public OpenStateStore(int initialCapacity) {
+        mKeys = new long[Math.max(initialCapacity, 1)];
+        mOffsets = new int[mKeys.length];
+    }
+
+    /**
+     * 把wrapper绑定到id并立即恢复该id的状态。
+     * 如果wrapper之前绑定的是另一个id，先把它当前的状态保存到之前的id下
+     */
+    public void applyState(SlideWrapper wrapper, long id) {
+        wrapper.bindState(this, id, get(id));
+    }
+
+    /**
+     * id对应的偏移量（px），关闭状态为0
+     */
+    public int get(long id) {
+        int i = indexOf(id);
+        return i >= 0 ? mOffsets[i] : 0;
+    }
+
+    /**
+     * 是否有偏移（展开或拖到一半）
+     */
+    public boolean isOpen(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * 记录id对应的偏移量，0表示关闭
+     */
+    public void put(long id, int offset) {
+        int i = indexOf(id);
+        if (offset <= 0) {
+            if (i >= 0) {
+                System.arraycopy(mKeys, i + 1, mKeys, i, mSize - i - 1);
+                System.arraycopy(mOffsets, i + 1, mOffsets, i, mSize - i - 1);
+                mSize--;
+            }
+            return;
+        }
+        if (i >= 0) {
+            mOffsets[i] = offset;
+            return;
+        }
+        i = ~i;
+        if (mSize == mKeys.length) {
+            long[] keys = new long[mSize * 2];
+            int[] offsets = new int[mSize * 2];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            System.arraycopy(mOffsets, 0, offsets, 0, mSize);
+            mKeys = keys;
+            mOffsets = offsets;
+        }
+        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+        System.arraycopy(mOffsets, i, mOffsets, i + 1, mSize - i);
+        mKeys[i] = id;
+        mOffsets[i] = offset;
+        mSize++;
+    }
+
+    /**
+     * 所有行都记为关闭，已经绑定的行不受影响
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    //二分查找，找不到时返回插入位置取反
+    private int indexOf(long id) {
+        int lo = 0, hi = mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = mKeys[mid];
+            if (k < id) {
+                lo = mid + 1;
+            } else if (k > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+}
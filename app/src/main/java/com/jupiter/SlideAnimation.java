@@ -0,0 +1,144 @@
+package com.jupiter;
+
+import android.animation.TimeInterpolator;
+
+/**
+ * 侧滑偏移量的动画，由{@link SlideAnimationDriver}推进。
+ * 有两种：固定时长的插值动画，以及手指抬起时带初速度的弹簧动画。
+ * 每个wrapper只创建一个，之后反复使用，开始动画时不分配对象
+ */
+abstract class SlideAnimation implements SlideAnimationDriver.Target {
+
+    //弹簧的角频率 = SPRING_FACTOR / 动画时长(秒)，这样从完全展开回弹到原位大约就是配置的动画时长
+    private static final float SPRING_FACTOR = 9f;
+    //离目标小于半个像素且速度很小时认为停止
+    private static final float REST_DISTANCE = 0.5f;
+    private static final float REST_VELOCITY = 20f;
+    //两帧间隔过长时（比如主线程卡顿）按这个间隔积分，避免一下子跳过头
+    private static final float MAX_FRAME_SECONDS = 1f / 30;
+
+    private int mFrom, mTo;
+    private long mStartNanos;
+    private long mDurationNanos;
+    private TimeInterpolator mInterpolator;
+    private boolean mRunning = false;
+
+    //弹簧动画的状态：位置、速度（px/s）、角频率
+    private boolean mSpring = false;
+    private float mPos, mVel;
+    private float mOmega;
+    private long mLastNanos;
+
+    /**
+     * 从from动画到to，已经在进行的动画直接被替换
+     */
+    void start(int from, int to, int durationMs, TimeInterpolator interpolator) {
+        mFrom = from;
+        mTo = to;
+        mDurationNanos = durationMs * 1000000L;
+        mInterpolator = interpolator;
+        //第一帧的时间作为开始时间
+        mStartNanos = -1;
+        mSpring = false;
+        mRunning = true;
+        SlideAnimationDriver.getInstance().start(this);
+    }
+
+    /**
+     * 以初速度velocity（px/s，偏移量增大的方向为正）从from弹到to。
+     * 弹簧是临界阻尼的，不会来回振荡，所用时间随距离和速度变化
+     * @param durationMs 配置的动画时长，用来决定弹簧的硬度
+     */
+    void startSpring(int from, float velocity, int to, int durationMs) {
+        mPos = from;
+        mVel = velocity;
+        mTo = to;
+        mOmega = SPRING_FACTOR * 1000f / Math.max(durationMs, 1);
+        mLastNanos = -1;
+        mSpring = true;
+        mRunning = true;
+        SlideAnimationDriver.getInstance().start(this);
+    }
+
+    /**
+     * 弹簧动画进行中时改变目标，保留当前的位置和速度，不重新开始
+     */
+    void retarget(int to) {
+        mTo = to;
+    }
+
+    boolean isSpringRunning() {
+        return mRunning && mSpring;
+    }
+
+    /**
+     * 停在当前位置，不回调onEnd
+     */
+    void cancel() {
+        if (!mRunning) return;
+        mRunning = false;
+        SlideAnimationDriver.getInstance().cancel(this);
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    int getTarget() {
+        return mTo;
+    }
+
+    @Override
+    public boolean doAnimationFrame(long frameTimeNanos) {
+        if (!mRunning) return false;
+        if (mSpring) {
+            stepSpring(frameTimeNanos);
+            return mRunning;
+        }
+        if (mStartNanos < 0) {
+            mStartNanos = frameTimeNanos;
+        }
+        float fraction = mDurationNanos <= 0 ? 1f
+                : Math.min(1f, (float) (frameTimeNanos - mStartNanos) / mDurationNanos);
+        if (fraction >= 1f) {
+            onUpdate(mTo);
+            mRunning = false;
+            //onEnd中可能又开始了新的动画
+            onEnd();
+        } else {
+            onUpdate(Math.round(mFrom + (mTo - mFrom) * mInterpolator.getInterpolation(fraction)));
+        }
+        return mRunning;
+    }
+
+    private void stepSpring(long frameTimeNanos) {
+        float dt = mLastNanos < 0 ? 0 : Math.min((frameTimeNanos - mLastNanos) / 1e9f, MAX_FRAME_SECONDS);
+        mLastNanos = frameTimeNanos;
+        //临界阻尼弹簧的解析解：x(t) = (x0 + (v0 + w*x0)*t) * e^(-w*t)
+        float x = mPos - mTo;
+        float b = mVel + mOmega * x;
+        float decay = (float) Math.exp(-mOmega * dt);
+        float newX = (x + b * dt) * decay;
+        mVel = (mVel - mOmega * b * dt) * decay;
+        //越过目标说明已经到了（目标是0或完全展开，越过去没有意义）
+        boolean crossed = (x > 0 && newX < 0) || (x < 0 && newX > 0);
+        mPos = mTo + newX;
+        if (crossed || (Math.abs(newX) < REST_DISTANCE && Math.abs(mVel) < REST_VELOCITY)) {
+            onUpdate(mTo);
+            mRunning = false;
+            onEnd();
+        } else {
+            onUpdate(Math.round(mPos));
+        }
+    }
+
+    /**
+     * 每一帧的偏移量
+     */
+    abstract void onUpdate(int offset);
+
+    /**
+     * 动画正常结束
+     */
+    abstract void onEnd();
+}
@@ -0,0 +1,96 @@
+package com.jupiter;
+
+import android.view.Choreographer;
+import java.util.ArrayList;
+
+/**
+ * 所有SlideWrapper共用的动画驱动。
+ * 只有在有动画进行时才向Choreographer注册帧回调，每一帧在一个回调里推进所有动画，
+ * 没有动画时自动注销。只能在主线程使用
+ */
+final class SlideAnimationDriver implements Choreographer.FrameCallback {
+
+    /**
+     * 由驱动推进的动画
+     */
+    interface Target {
+        /**
+         * 推进一帧
+         * @param frameTimeNanos 当前帧的时间
+         * @return 是否还需要继续
+         */
+        boolean doAnimationFrame(long frameTimeNanos);
+    }
+
+    private static SlideAnimationDriver sInstance;
+
+    static SlideAnimationDriver getInstance() {
+        if (sInstance == null) {
+            sInstance = new SlideAnimationDriver();
+        }
+        return sInstance;
+    }
+
+    private final ArrayList<Target> mTargets = new ArrayList<>();
+    private boolean mRegistered = false;
+    //正在回调中，这时取消的动画只置空，回调结束后再统一移除
+    private boolean mInFrame = false;
+
+    private SlideAnimationDriver() {
+    }
+
+    void start(Target target) {
+        if (!mTargets.contains(target)) {
+            mTargets.add(target);
+        }
+        if (!mRegistered) {
+            mRegistered = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void cancel(Target target) {
+        int index = mTargets.indexOf(target);
+        if (index < 0) return;
+        if (mInFrame) {
+            mTargets.set(index, null);
+        } else {
+            mTargets.remove(index);
+        }
+    }
+
+    /**
+     * 当前正在进行的动画个数
+     */
+    int getActiveCount() {
+        int count = 0;
+        for (int i = 0; i < mTargets.size(); i++) {
+            if (mTargets.get(i) != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mInFrame = true;
+        //回调中新加入的动画从下一帧开始
+        int n = mTargets.size();
+        for (int i = 0; i < n; i++) {
+            Target target = mTargets.get(i);
+            if (target != null && !target.doAnimationFrame(frameTimeNanos)) {
+                mTargets.set(i, null);
+            }
+        }
+        mInFrame = false;
+        for (int i = mTargets.size() - 1; i >= 0; i--) {
+            if (mTargets.get(i) == null) {
+                mTargets.remove(i);
+            }
+        }
+        if (mTargets.isEmpty()) {
+            mRegistered = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.jupiter;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import java.util.ArrayList;
+
+/**
+ * 侧滑配置，创建后不可修改。
+ * 同一个列表中的所有SlideWrapper可以共享同一个实例（通过{@link SlideWrapper#setConfig(SlideConfig)}设置），
+ * 这样每一行就不用再各自保存模式、动画时长等参数
+ */
+public final class SlideConfig {
+
+    /**
+     * 静态模式，侧滑view不动，仅被装的view移动
+     */
+    public static final int MODE_STATIC  = 0;
+    /**
+     * 动态模式，侧滑view跟随被包装的view一起移动
+     */
+    public static final int MODE_DYNAMIC = 1;
+
+    public static final int DEFAULT_DURATION = 300;
+
+    /**
+     * 默认配置：静态模式，动画300ms，点击后关闭
+     */
+    public static final SlideConfig DEFAULT = new SlideConfig(MODE_STATIC, DEFAULT_DURATION, true, false, false,
+            null, null);
+
+    private static final int[] EMPTY = new int[0];
+    private static final Action[] NO_ACTION = new Action[0];
+
+    /**
+     * 直接画在SlideWrapper上的按钮，不需要创建子view
+     */
+    public static final class Action {
+        public final String label;
+        public final int backgroundColor;
+        public final int textColor;
+        /**
+         * 宽度，单位px
+         */
+        public final int widthPx;
+        /**
+         * 文字大小，单位px
+         */
+        public final float textSizePx;
+
+        public Action(String label, int backgroundColor, int textColor, int widthPx, float textSizePx) {
+            this.label = label;
+            this.backgroundColor = backgroundColor;
+            this.textColor = textColor;
+            this.widthPx = widthPx;
+            this.textSizePx = textSizePx;
+        }
+    }
+
+    //布局中声明的wrapper参数基本都一样，解析出来的配置缓存起来共享
+    private static final ArrayList<SlideConfig> sXmlConfigs = new ArrayList<>();
+
+    private final int mMode;
+    private final int mAnimationDurationMs;
+    private final boolean mCloseOnClick;
+    private final boolean mLazyControls;
+    private final boolean mRenderThreadSettle;
+    private final int[] mControlWidthPx;
+    private final int mScrollablePx;
+    private final Action[] mActions;
+    //画按钮用的画笔，所有共享这个配置的wrapper共用，只在主线程使用
+    private Paint mActionPaint;
+
+    private SlideConfig(int mode, int durationMs, boolean closeOnClick, boolean lazyControls,
+                        boolean renderThreadSettle, int[] widthPx, Action[] actions) {
+        mMode = mode;
+        mAnimationDurationMs = durationMs;
+        mCloseOnClick = closeOnClick;
+        mLazyControls = lazyControls;
+        mRenderThreadSettle = renderThreadSettle;
+        mActions = actions != null ? actions : NO_ACTION;
+        if (mActions.length > 0) {
+            //画出来的按钮的宽度就是侧滑的宽度
+            widthPx = new int[mActions.length];
+            for (int i = 0; i < mActions.length; i++) {
+                widthPx[i] = mActions[i].widthPx;
+            }
+        }
+        mControlWidthPx = widthPx != null ? widthPx : EMPTY;
+        int sum = 0;
+        for (int w : mControlWidthPx) {
+            sum += w;
+        }
+        mScrollablePx = sum;
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public boolean isDynamic() {
+        return mMode == MODE_DYNAMIC;
+    }
+
+    public int getAnimationDurationMs() {
+        return mAnimationDurationMs;
+    }
+
+    public boolean isCloseOnClick() {
+        return mCloseOnClick;
+    }
+
+    /**
+     * ViewFactory的侧滑view是否延迟到第一次展开时才创建
+     */
+    public boolean isLazyControls() {
+        return mLazyControls;
+    }
+
+    /**
+     * 静态模式的归位动画是否交给ViewPropertyAnimator执行
+     */
+    public boolean isRenderThreadSettle() {
+        return mRenderThreadSettle;
+    }
+
+    /**
+     * 配置中指定了宽度的侧滑view个数，0表示没有指定
+     */
+    public int getControlCount() {
+        return mControlWidthPx.length;
+    }
+
+    /**
+     * 第index个侧滑view的宽度，单位px
+     */
+    public int getControlWidthPx(int index) {
+        return mControlWidthPx[index];
+    }
+
+    /**
+     * 所有侧滑view的宽度之和，单位px，没有指定时为0
+     */
+    public int getScrollablePx() {
+        return mScrollablePx;
+    }
+
+    /**
+     * 直接绘制的按钮个数，大于0时wrapper不需要侧滑子view
+     */
+    public int getActionCount() {
+        return mActions.length;
+    }
+
+    public Action getAction(int index) {
+        return mActions[index];
+    }
+
+    Paint getActionPaint() {
+        if (mActionPaint == null) {
+            mActionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mActionPaint.setTextAlign(Paint.Align.CENTER);
+        }
+        return mActionPaint;
+    }
+
+    /**
+     * 从left开始从左到右画出所有按钮，高度从top到bottom
+     */
+    void drawActions(Canvas canvas, float left, float top, float bottom) {
+        Paint paint = getActionPaint();
+        for (int i = 0; i < mActions.length; i++) {
+            Action action = mActions[i];
+            paint.setColor(action.backgroundColor);
+            canvas.drawRect(left, top, left + action.widthPx, bottom, paint);
+            if (action.label != null) {
+                paint.setColor(action.textColor);
+                paint.setTextSize(action.textSizePx);
+                float baseline = (top + bottom - paint.ascent() - paint.descent()) / 2;
+                canvas.drawText(action.label, left + action.widthPx / 2f, baseline, paint);
+            }
+            left += action.widthPx;
+        }
+    }
+
+    /**
+     * 按钮从left开始排列时，x处是第几个按钮，没有按钮时返回-1
+     */
+    int findActionAt(float x, float left) {
+        if (x < left) return -1;
+        for (int i = 0; i < mActions.length; i++) {
+            left += mActions[i].widthPx;
+            if (x < left) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 把xml中的mode字符串转换成模式常量
+     */
+    static int parseMode(String mode) {
+        return SlideWrapper.MODE_DYNAMIC.equals(mode) ? MODE_DYNAMIC : MODE_STATIC;
+    }
+
+    /**
+     * 获取xml属性对应的配置，相同参数返回同一个实例
+     */
+    static SlideConfig obtain(int mode, int durationMs, boolean closeOnClick) {
+        if (mode == DEFAULT.mMode && durationMs == DEFAULT.mAnimationDurationMs
+                && closeOnClick == DEFAULT.mCloseOnClick) {
+            return DEFAULT;
+        }
+        synchronized (sXmlConfigs) {
+            for (int i = 0; i < sXmlConfigs.size(); i++) {
+                SlideConfig c = sXmlConfigs.get(i);
+                if (c.mMode == mode && c.mAnimationDurationMs == durationMs && c.mCloseOnClick == closeOnClick) {
+                    return c;
+                }
+            }
+            SlideConfig c = new SlideConfig(mode, durationMs, closeOnClick, false, false, null, null);
+            sXmlConfigs.add(c);
+            return c;
+        }
+    }
+
+    /**
+     * 构造SlideConfig，宽度在build时就换算成px
+     */
+    public static class Builder {
+
+        private final float mDensity;
+        private final float mScaledDensity;
+        private int mMode = MODE_STATIC;
+        private int mAnimationDurationMs = DEFAULT_DURATION;
+        private boolean mCloseOnClick = true;
+        private boolean mLazyControls = false;
+        private boolean mRenderThreadSettle = false;
+        private int[] mControlWidthPx;
+        private ArrayList<Action> mActions;
+        private float mActionTextSizePx;
+
+        public Builder(Context context) {
+            mDensity = context.getResources().getDisplayMetrics().density;
+            mScaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+            mActionTextSizePx = 14 * mScaledDensity;
+        }
+
+        /**
+         * @param mode {@link #MODE_STATIC} 或 {@link #MODE_DYNAMIC}
+         */
+        public Builder mode(int mode) {
+            mMode = mode;
+            return this;
+        }
+
+        public Builder animationDuration(int ms) {
+            mAnimationDurationMs = ms;
+            return this;
+        }
+
+        public Builder closeOnClick(boolean close) {
+            mCloseOnClick = close;
+            return this;
+        }
+
+        /**
+         * 延迟创建ViewFactory提供的侧滑view：绑定时只占住侧滑宽度，第一次横向拖动或调用
+         * {@link SlideWrapper#open()}时才创建。需要能事先知道宽度（本配置或ViewFactory.getWidthDp()），
+         * 否则仍然立即创建
+         */
+        public Builder lazyControls(boolean lazy) {
+            mLazyControls = lazy;
+            return this;
+        }
+
+        /**
+         * 静态模式下，把手指抬起后的归位动画以及open()/close()的动画交给被包装view的
+         * ViewPropertyAnimator，并在动画期间使用硬件层，每帧只更新平移属性，不走SlideWrapper自己的帧回调。
+         * 注意标准系统上ViewPropertyAnimator仍然在主线程逐帧推进，这个选项不能让动画躲过主线程卡顿；
+         * 完成回调按动画时长（多等一帧）post到主线程，主线程卡顿时回调也会推迟。动态模式不受影响
+         */
+        public Builder renderThreadSettle(boolean enable) {
+            mRenderThreadSettle = enable;
+            return this;
+        }
+
+        /**
+         * 每个侧滑view的宽度，以dp为单位
+         */
+        public Builder controlWidthDp(int... widthDp) {
+            mControlWidthPx = new int[widthDp.length];
+            for (int i = 0; i < widthDp.length; i++) {
+                mControlWidthPx[i] = (int) (widthDp[i] * mDensity + 0.5f);
+            }
+            return this;
+        }
+
+        /**
+         * 每个侧滑view的宽度，以px为单位
+         */
+        public Builder controlWidthPx(int... widthPx) {
+            mControlWidthPx = widthPx.clone();
+            return this;
+        }
+
+        /**
+         * 之后添加的按钮的文字大小，以sp为单位，默认14sp
+         */
+        public Builder actionTextSizeSp(float sp) {
+            mActionTextSizePx = sp * mScaledDensity;
+            return this;
+        }
+
+        /**
+         * 添加一个直接画出来的按钮（不创建子view），按添加的顺序从左到右排列。
+         * 设置了按钮后，侧滑宽度就是按钮宽度之和，controlWidthDp等设置不再生效
+         * @param widthDp 按钮宽度，以dp为单位
+         */
+        public Builder addAction(String label, int backgroundColor, int textColor, int widthDp) {
+            if (mActions == null) mActions = new ArrayList<>();
+            mActions.add(new Action(label, backgroundColor, textColor, (int) (widthDp * mDensity + 0.5f),
+                    mActionTextSizePx));
+            return this;
+        }
+
+        public SlideConfig build() {
+            Action[] actions = mActions != null ? mActions.toArray(new Action[mActions.size()]) : null;
+            return new SlideConfig(mMode, mAnimationDurationMs, mCloseOnClick, mLazyControls,
+                    mRenderThreadSettle, mControlWidthPx, actions);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.jupiter;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 侧滑view的复用池，按ViewFactory的类型区分。
+ * 同一个列表的wrapper共享一个池（{@link SlideWrapper#setControlPool(SlideControlPool)}），
+ * wrapper展开时从池里取侧滑view，关闭或者从窗口移除时还回来，
+ * 这样整个列表只有正在展开的那一两行持有侧滑view。
+ * 可以用{@link #prepareAsync}在后台线程提前创建侧滑view，绑定和展开时直接从池里取。
+ * 除prepareAsync的创建过程外只能在主线程使用
+ */
+public class SlideControlPool {
+
+    private static final String TAG = "SlideControlPool";
+    private static final int DEFAULT_MAX_PER_TYPE = 4;
+
+    private final HashMap<Class<?>, ArrayList<List<View>>> mScrap = new HashMap<>();
+    //每种factory已经提交到后台、还没有回到主线程的组数
+    private final HashMap<Class<?>, int[]> mInFlight = new HashMap<>();
+    private final int mMaxPerType;
+    //每次clear加1，clear之前提交的后台创建结果直接丢弃
+    private int mGeneration = 0;
+    private Handler mMainHandler;
+    //后台创建失败只打印一次日志
+    private boolean mAsyncFailureLogged = false;
+
+    public SlideControlPool() {
+        this(DEFAULT_MAX_PER_TYPE);
+    }
+
+    /**
+     * @param maxPerType 每种factory最多缓存几组侧滑view
+     */
+    public SlideControlPool(int maxPerType) {
+        mMaxPerType = maxPerType;
+    }
+
+    /**
+     * 取一组侧滑view，池里没有时用factory创建
+     */
+    public List<View> acquire(SlideWrapper.ViewFactory factory, Context context) {
+        ArrayList<List<View>> scrap = mScrap.get(factory.getClass());
+        if (scrap != null && scrap.size() > 0) {
+            return scrap.remove(scrap.size() - 1);
+        }
+        return factory.getView(context);
+    }
+
+    /**
+     * 在executor上提前创建count组侧滑view，创建好后回到主线程放进池里，最多补到每种factory的上限，
+     * 之前提交的还没创建好的也算在内。
+     * factory.getView会在后台线程调用，只能创建和设置view，不能访问已经显示的view；
+     * 创建失败或者还没创建好时，{@link #acquire}仍然在主线程同步创建
+     */
+    public void prepareAsync(final SlideWrapper.ViewFactory factory, final Context context, int count,
+                             Executor executor) {
+        final Class<?> type = factory.getClass();
+        int[] inFlight = mInFlight.get(type);
+        if (inFlight == null) {
+            inFlight = new int[1];
+            mInFlight.put(type, inFlight);
+        }
+        final int n = Math.min(count, mMaxPerType - getScrapCount(factory.getClass()) - inFlight[0]);
+        if (n <= 0) return;
+        inFlight[0] += n;
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        final int generation = mGeneration;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < n; i++) {
+                    final List<View> views;
+                    try {
+                        views = factory.getView(context);
+                    } catch (final RuntimeException e) {
+                        //有的view只能在主线程创建，剩下的交给acquire同步创建
+                        final int remaining = n - i;
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!mAsyncFailureLogged) {
+                                    mAsyncFailureLogged = true;
+                                    Log.w(TAG, "Failed to create control views off the main thread: "
+                                            + type.getName(), e);
+                                }
+                                if (generation == mGeneration) {
+                                    finishInFlight(type, remaining);
+                                }
+                            }
+                        });
+                        return;
+                    }
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation == mGeneration) {
+                                finishInFlight(type, 1);
+                                release(factory, views);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void finishInFlight(Class<?> type, int count) {
+        int[] inFlight = mInFlight.get(type);
+        if (inFlight != null) {
+            inFlight[0] = Math.max(0, inFlight[0] - count);
+        }
+    }
+
+    /**
+     * 还回一组侧滑view，这些view必须已经从父view中移除
+     */
+    public void release(SlideWrapper.ViewFactory factory, List<View> views) {
+        if (views == null || views.size() == 0) return;
+        ArrayList<List<View>> scrap = mScrap.get(factory.getClass());
+        if (scrap == null) {
+            scrap = new ArrayList<>(mMaxPerType);
+            mScrap.put(factory.getClass(), scrap);
+        }
+        if (scrap.size() < mMaxPerType) {
+            scrap.add(views);
+        }
+    }
+
+    /**
+     * 池中某种factory当前缓存的组数
+     */
+    public int getScrapCount(Class<? extends SlideWrapper.ViewFactory> type) {
+        ArrayList<List<View>> scrap = mScrap.get(type);
+        return scrap != null ? scrap.size() : 0;
+    }
+
+    public void clear() {
+        mGeneration++;
+        mScrap.clear();
+        mInFlight.clear();
+    }
+}
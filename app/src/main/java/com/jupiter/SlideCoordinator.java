@@ -0,0 +1,105 @@
+package com.jupiter;
+
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import java.util.ArrayList;
+
+/**
+ * 列表级别的侧滑协调器，一个列表（RecyclerView、ListView等）共用一个。
+ * wrapper通过{@link SlideWrapper#setCoordinator(SlideCoordinator)}加入后，协调器记录当前没有关闭的行，
+ * 默认同时只允许一行展开：新的一行开始侧滑时关闭之前的行，列表滚动时关闭所有行，
+ * 不需要遍历列表的子view。关闭动画都由共用的动画驱动在同一个帧回调中推进。只能在主线程使用
+ */
+public class SlideCoordinator {
+
+    //没有关闭的行（展开、正在拖动或正在动画），单行展开模式下最多两个（一个在关，一个在开）
+    private final ArrayList<SlideWrapper> mActive = new ArrayList<>(2);
+    private boolean mSingleOpen = true;
+
+    private ViewGroup mList;
+    private ViewTreeObserver mObserver;
+
+    private final ListScrollDetector mScrollListener = new ListScrollDetector() {
+        @Override
+        ViewGroup getScrollingList() {
+            return mList;
+        }
+
+        @Override
+        void onListScrolled() {
+            closeAll();
+        }
+    };
+
+    /**
+     * 关联列表，列表滚动时关闭所有展开的行
+     */
+    public void attach(ViewGroup list) {
+        detach();
+        mList = list;
+        mScrollListener.reset();
+        mObserver = list.getViewTreeObserver();
+        mObserver.addOnScrollChangedListener(mScrollListener);
+    }
+
+    public void detach() {
+        if (mList == null) return;
+        ViewTreeObserver observer = mObserver.isAlive() ? mObserver : mList.getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mScrollListener);
+        mObserver = null;
+        mList = null;
+        mScrollListener.clear();
+    }
+
+    /**
+     * 是否同时只允许一行展开，默认是
+     */
+    public void setSingleOpen(boolean single) {
+        mSingleOpen = single;
+    }
+
+    /**
+     * 关闭所有没有关闭的行
+     */
+    public void closeAll() {
+        for (int i = mActive.size() - 1; i >= 0; i--) {
+            //关闭完成时会从mActive中移除，这里倒序遍历
+            if (i < mActive.size()) {
+                mActive.get(i).collapse();
+            }
+        }
+    }
+
+    /**
+     * 当前完全展开或正在展开的行，没有时返回null
+     */
+    public SlideWrapper getOpenWrapper() {
+        return mActive.isEmpty() ? null : mActive.get(mActive.size() - 1);
+    }
+
+    //某一行开始侧滑（确定横向拖动或调用了open()）
+    void onSlideStart(SlideWrapper wrapper) {
+        if (mSingleOpen) {
+            for (int i = mActive.size() - 1; i >= 0; i--) {
+                SlideWrapper w = mActive.get(i);
+                if (w != wrapper) {
+                    w.collapse();
+                }
+            }
+        }
+        if (!mActive.contains(wrapper)) {
+            mActive.add(wrapper);
+        }
+    }
+
+    void onOpened(SlideWrapper wrapper) {
+        if (!mActive.contains(wrapper)) {
+            mActive.add(wrapper);
+        }
+    }
+
+    //关闭、拉回或者从窗口移除后不再跟踪
+    void onClosed(SlideWrapper wrapper) {
+        mActive.remove(wrapper);
+    }
+}
@@ -0,0 +1,222 @@
+package com.jupiter;
+
+/**
+ * 侧滑手势的状态机，不依赖Android框架，输入的是基本类型的触摸采样（坐标、时间），
+ * 输出偏移量和状态变化，可以脱离设备在普通JVM上测试和做性能测试。
+ * 包括：按下后在touch slop内判断横向还是纵向滑动，拖动时把偏移量限制在0到可滑动距离之间，
+ * 点击和长按的判定，以及抬起时根据速度和位置决定展开还是关闭。
+ * SlideWrapper把MotionEvent转换成这里的调用，再把结果应用到view上。
+ * 所有方法都不分配对象，不是线程安全的
+ */
+public final class SlideGestureEngine {
+
+    /**
+     * 还没确定方向
+     */
+    public static final int DECISION_NONE = 0;
+    /**
+     * 横向滑动，由wrapper处理
+     */
+    public static final int DECISION_HORIZONTAL = 1;
+    /**
+     * 纵向滑动，交给父控件
+     */
+    public static final int DECISION_VERTICAL = 2;
+
+    /**
+     * 点击的最长时间，单位ms
+     */
+    public static final int CLICK_INTERVAL = 300;
+    /**
+     * 点击时允许的最大移动距离，单位px
+     */
+    public static final int CLICK_DISTANCE = 20;
+    /**
+     * 抬起时按方向展开或关闭的最小横向速度，单位dp/s，使用时乘以屏幕密度
+     */
+    public static final int FLING_VELOCITY_DP = 400;
+
+    //横向位移超过纵向位移的这个倍数（即和竖直方向的夹角超过60度）才算横向滑动
+    static final float TAN60 = 1.73f;
+
+    private int mTouchSlop;
+    private float mFlingVelocity;
+    private int mScrollable = 0;
+
+    //按下的位置和时间
+    private float mXDown, mYDown;
+    private long mDownTime;
+    //上一次的屏幕坐标，用来计算拖动的位移
+    private float mXLastMove;
+    private int mDecision = DECISION_NONE;
+    private boolean mMoved = false;
+    //不触发点击、长按（展开状态下或者已经开始侧滑）
+    private boolean mSuppressClick = false;
+
+    //拖动过程中的偏移量（带小数，避免每帧取整累积误差）
+    private float mDragOffset;
+    private boolean mDragging = false;
+
+    /**
+     * @param touchSlop 判断方向前需要移动的距离，单位px
+     * @param flingVelocity 抬起时横向速度超过该值（px/s）就按滑动方向展开或关闭
+     */
+    public SlideGestureEngine(int touchSlop, float flingVelocity) {
+        setThresholds(touchSlop, flingVelocity);
+    }
+
+    /**
+     * 屏幕密度等变化后更新阈值
+     */
+    public void setThresholds(int touchSlop, float flingVelocity) {
+        mTouchSlop = touchSlop;
+        mFlingVelocity = flingVelocity;
+    }
+
+    /**
+     * 可滑动距离，单位px
+     */
+    public void setScrollable(int scrollable) {
+        mScrollable = Math.max(0, scrollable);
+    }
+
+    public int getScrollable() {
+        return mScrollable;
+    }
+
+    /**
+     * 手指按下
+     * @param x 相对于wrapper的坐标
+     * @param rawX 屏幕坐标，用来计算拖动位移
+     */
+    public void onDown(float x, float y, float rawX, long timeMs) {
+        mXDown = x;
+        mYDown = y;
+        mXLastMove = rawX;
+        mDownTime = timeMs;
+        mDecision = DECISION_NONE;
+        mMoved = false;
+        mDragging = false;
+    }
+
+    /**
+     * 手指移动，移动超过touch slop时确定方向，只确定一次
+     * @return 这次移动刚确定的方向，之前已经确定或者还没确定时返回{@link #DECISION_NONE}
+     */
+    public int onMove(float x, float y) {
+        float deltaX = Math.abs(x - mXDown);
+        float deltaY = Math.abs(y - mYDown);
+        if (deltaX > CLICK_DISTANCE && deltaY > CLICK_DISTANCE) {
+            mMoved = true;
+        }
+        if (mDecision != DECISION_NONE) return DECISION_NONE;
+        if (deltaX <= mTouchSlop && deltaY <= mTouchSlop) return DECISION_NONE;
+        if (deltaX > deltaY * TAN60) {
+            //当角度值超过60度的时候，就处理触摸事件，同时把点击事件暂时禁用掉
+            mDecision = DECISION_HORIZONTAL;
+            mSuppressClick = true;
+        } else {
+            mDecision = DECISION_VERTICAL;
+        }
+        return mDecision;
+    }
+
+    /**
+     * 按下的时间，和传给{@link #onDown}的时间同一个时间基准
+     */
+    public long getDownTime() {
+        return mDownTime;
+    }
+
+    public int getDecision() {
+        return mDecision;
+    }
+
+    public boolean isHorizontal() {
+        return mDecision == DECISION_HORIZONTAL;
+    }
+
+    /**
+     * 按下后挂起的长按是否还有效：没有移动、没有开始侧滑、也没有被禁止
+     */
+    public boolean isLongPressValid() {
+        return !mSuppressClick && !mMoved && mDecision != DECISION_HORIZONTAL;
+    }
+
+    /**
+     * 手指抬起时是否算点击：时间够短且几乎没有移动，不考虑是否被禁止
+     */
+    public boolean isClick(float x, float y, long timeMs) {
+        return timeMs - mDownTime <= CLICK_INTERVAL
+                && Math.abs(x - mXDown) < CLICK_DISTANCE
+                && Math.abs(y - mYDown) < CLICK_DISTANCE;
+    }
+
+    public void setSuppressClick(boolean suppress) {
+        mSuppressClick = suppress;
+    }
+
+    public boolean isClickSuppressed() {
+        return mSuppressClick;
+    }
+
+    /**
+     * 记下当前的屏幕坐标，不产生位移
+     */
+    public void resetLastMove(float rawX) {
+        mXLastMove = rawX;
+    }
+
+    /**
+     * 相对于上一次的横向位移，向右为正
+     */
+    public float consumeMove(float rawX) {
+        float dx = rawX - mXLastMove;
+        mXLastMove = rawX;
+        return dx;
+    }
+
+    /**
+     * 累加拖动位移，第一次调用时从currentOffset开始
+     * @param dx 手指的位移，向右为正
+     * @return 限制在0到可滑动距离之间的偏移量（带小数）
+     */
+    public float dragBy(float dx, int currentOffset) {
+        if (!mDragging) {
+            mDragging = true;
+            mDragOffset = currentOffset;
+        }
+        //手指向左是展开方向
+        mDragOffset = Math.max(0, Math.min(mScrollable, mDragOffset - dx));
+        return mDragOffset;
+    }
+
+    public float getDragOffset() {
+        return mDragOffset;
+    }
+
+    public boolean isDragging() {
+        return mDragging;
+    }
+
+    public void endDrag() {
+        mDragging = false;
+    }
+
+    /**
+     * 抬起或者中断时决定归位的目标：快速滑动时按方向决定，否则超过1/3就展开，小于1/3就回滚
+     * @param offset 当前的偏移量
+     * @param velocity 展开方向（向左）为正的速度，单位px/s
+     * @return 目标偏移量，0或者可滑动距离
+     */
+    public int settleTarget(int offset, float velocity) {
+        if (offset <= 0) return 0;
+        boolean open;
+        if (Math.abs(velocity) >= mFlingVelocity) {
+            open = velocity > 0;
+        } else {
+            open = offset >= mScrollable / 3;
+        }
+        return open ? mScrollable : 0;
+    }
+}
@@ -0,0 +1,629 @@
+package com.jupiter;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.DecelerateInterpolator;
+import android.widget.FrameLayout;
+import java.util.List;
+
+/**
+ * 不用给每一行套SlideWrapper的侧滑方式：把列表（RecyclerView、ListView等）作为唯一的子view放在SlideListLayout中，
+ * 由它处理所有行的侧滑，行本身的布局层次不变，也没有每行一个的wrapper对象。
+ * 模式、按钮（{@link SlideConfig.Builder#addAction}画出来的按钮，或者ViewFactory提供的侧滑view）和回调的含义
+ * 都和SlideWrapper一致，侧滑view只在正在侧滑的那一行出现，关闭后移除。
+ * 同时只有一行展开，按下其他位置或者列表滚动时关闭。只能在主线程使用
+ */
+public class SlideListLayout extends FrameLayout {
+
+    /**
+     * 回调，和{@link SlideWrapper.Callback}的含义一致
+     */
+    public interface Callback {
+        /**
+         * 完全展开时的回调
+         * @param item 列表中的行
+         */
+        void onCompletelyOpen(View item);
+
+        /**
+         * 从打开状态变成关闭时的回调
+         * @param item 列表中的行
+         */
+        void onCompleteClosed(View item);
+
+        /**
+         * 拖到中途手势抬起后被拉回后的回调
+         * @param item 列表中的行
+         */
+        void onPullBack(View item);
+    }
+
+    /**
+     * 点击直接绘制的按钮时的回调
+     */
+    public interface OnActionClickListener {
+        /**
+         * @param item 列表中的行
+         * @param index 按钮序号，和添加的顺序一致
+         */
+        void onActionClick(View item, int index);
+    }
+
+    private SlideConfig mConfig = SlideConfig.DEFAULT;
+    private SlideWrapper.ViewFactory mFactory;
+    private SlideControlPool mControlPool;
+    private Callback mCallback;
+    private OnActionClickListener mActionClickListener;
+
+    private SlideGestureEngine mGesture;
+    private VelocityTracker mVelocityTracker;
+    private SlideAnimation mAnimation;
+
+    //正在侧滑或者已经展开的行，没有时为null
+    private View mActiveItem;
+    private int mOffset = 0;
+    private int mScrollable = 0;
+    //当前的行已经回调过完全展开
+    private boolean mWasOpen = false;
+    //当前行的侧滑view，关闭后移除
+    private List<View> mControls;
+    private int[] mControlWidthPx;
+
+    //这次触摸按下的行
+    private View mTouchItem;
+    //这次触摸由自己处理
+    private boolean mOwnTouch = false;
+    private boolean mSliding = false;
+    //展开状态下按在露出的按钮区域
+    private boolean mDownInStrip = false;
+    //展开状态下按在这一行的内容上，移动或抬起时再决定怎么处理
+    private boolean mDownOnOpenContent = false;
+
+    private final Rect mRect = new Rect();
+    private static final DecelerateInterpolator CLOSE_INTERPOLATOR = new DecelerateInterpolator();
+
+    //列表滚动时关闭展开的行
+    private final ListScrollDetector mScrollListener = new ListScrollDetector() {
+        @Override
+        ViewGroup getScrollingList() {
+            return getList();
+        }
+
+        @Override
+        void onListScrolled() {
+            if (mActiveItem != null) {
+                //行可能马上被复用，直接复位，不做动画
+                jumpClosed();
+            }
+        }
+    };
+
+    public SlideListLayout(Context context) {
+        super(context);
+        init();
+    }
+
+    public SlideListLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public SlideListLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        updateGestureThresholds();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        updateGestureThresholds();
+    }
+
+    //和SlideWrapper使用相同的阈值
+    private void updateGestureThresholds() {
+        int slop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        float fling = SlideGestureEngine.FLING_VELOCITY_DP * getResources().getDisplayMetrics().density;
+        if (mGesture == null) {
+            mGesture = new SlideGestureEngine(slop, fling);
+        } else {
+            mGesture.setThresholds(slop, fling);
+        }
+    }
+
+    public void setConfig(SlideConfig config) {
+        jumpClosed();
+        mConfig = config != null ? config : SlideConfig.DEFAULT;
+    }
+
+    public SlideConfig getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * 设置提供侧滑view的factory，只在有行侧滑时创建。配置中有画出来的按钮时不使用
+     */
+    public void setViewFactory(SlideWrapper.ViewFactory factory) {
+        jumpClosed();
+        mFactory = factory;
+    }
+
+    /**
+     * 设置侧滑view的复用池，需要在setViewFactory之前调用
+     */
+    public void setControlPool(SlideControlPool pool) {
+        jumpClosed();
+        mControlPool = pool;
+    }
+
+    public void setCallback(Callback cb) {
+        mCallback = cb;
+    }
+
+    public void setOnActionClickListener(OnActionClickListener listener) {
+        mActionClickListener = listener;
+    }
+
+    /**
+     * 当前展开或正在侧滑的行，没有时返回null
+     */
+    public View getOpenItem() {
+        return mActiveItem;
+    }
+
+    /**
+     * 动画关闭展开的行
+     */
+    public void closeOpenItem() {
+        if (mActiveItem == null) return;
+        mSliding = false;
+        if (mOffset <= 0) {
+            settled();
+            return;
+        }
+        ensureAnimation().start(mOffset, 0, mConfig.getAnimationDurationMs(), CLOSE_INTERPOLATOR);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mScrollListener.reset();
+        getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollListener);
+        mScrollListener.clear();
+        jumpClosed();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            } else {
+                mVelocityTracker.clear();
+            }
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(ev);
+        }
+        boolean handled = super.dispatchTouchEvent(ev);
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            if (mVelocityTracker != null) {
+                mVelocityTracker.recycle();
+                mVelocityTracker = null;
+            }
+        }
+        return handled;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mGesture.onDown(ev.getX(), ev.getY(), ev.getRawX(), ev.getEventTime());
+                mGesture.setSuppressClick(false);
+                mOwnTouch = false;
+                mSliding = false;
+                mDownInStrip = false;
+                mDownOnOpenContent = false;
+                mTouchItem = findItemAt(ev.getX(), ev.getY());
+                if (mActiveItem == null) return false;
+                if (mTouchItem != mActiveItem) {
+                    //按在其他地方，关闭展开的行，不拦截，这次触摸照常交给列表（比如纵向滚动）
+                    closeOpenItem();
+                    return false;
+                }
+                if (mAnimation != null && mAnimation.isRunning()) {
+                    //动画进行中被按住，停在当前位置由手指接管
+                    mAnimation.cancel();
+                    mGesture.setSuppressClick(true);
+                    return own();
+                }
+                if (mOffset >= mScrollable && inStrip(ev.getX())) {
+                    mDownInStrip = true;
+                    //侧滑view自己处理点击，画出来的按钮由这里处理
+                    return mConfig.getActionCount() > 0 && own();
+                }
+                //按在展开的行的内容上先不拦截：横向拖动时接管，纵向拖动交给列表并关闭，点击时关闭
+                mDownOnOpenContent = true;
+                return false;
+            case MotionEvent.ACTION_MOVE:
+                int decision = mGesture.onMove(ev.getX(), ev.getY());
+                if (decision == SlideGestureEngine.DECISION_HORIZONTAL
+                        && mTouchItem != null && beginSlide(mTouchItem)) {
+                    mGesture.resetLastMove(ev.getRawX());
+                    return own();
+                }
+                if (decision == SlideGestureEngine.DECISION_VERTICAL && mDownOnOpenContent) {
+                    mDownOnOpenContent = false;
+                    closeOpenItem();
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mDownInStrip && mConfig.isCloseOnClick()) {
+                    //点了侧滑view，点击事件照常分发给它，同时关闭
+                    closeOpenItem();
+                } else if (mDownOnOpenContent && mGesture.isClick(ev.getX(), ev.getY(), ev.getEventTime())) {
+                    //点击展开的行的内容只关闭，拦截下来，不让这一行响应点击
+                    mDownOnOpenContent = false;
+                    closeOpenItem();
+                    return true;
+                }
+                break;
+        }
+        return false;
+    }
+
+    private boolean own() {
+        mOwnTouch = true;
+        return true;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (!mOwnTouch) return false;
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                if (!mSliding && mGesture.onMove(ev.getX(), ev.getY()) == SlideGestureEngine.DECISION_HORIZONTAL
+                        && mTouchItem != null) {
+                    beginSlide(mTouchItem);
+                }
+                if (mSliding) {
+                    float dx = mGesture.consumeMove(ev.getRawX());
+                    mGesture.setScrollable(mScrollable);
+                    applyOffset(Math.round(mGesture.dragBy(dx, mOffset)));
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                boolean isClick = !mSliding && mGesture.isClick(ev.getX(), ev.getY(), ev.getEventTime());
+                if (isClick && mDownInStrip) {
+                    //展开状态下点击了画出来的按钮
+                    int index = mConfig.findActionAt(ev.getX(), actionsLeft());
+                    if (index >= 0 && mActionClickListener != null) {
+                        mActionClickListener.onActionClick(mActiveItem, index);
+                    }
+                    if (mConfig.isCloseOnClick()) {
+                        closeOpenItem();
+                    }
+                } else if (isClick && !mGesture.isClickSuppressed()) {
+                    //点击展开的行的内容
+                    closeOpenItem();
+                } else {
+                    settle(getReleaseVelocity());
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                settle(0);
+                return true;
+        }
+        return true;
+    }
+
+    //确定横向滑动后开始侧滑，这一行没有侧滑内容时返回false
+    private boolean beginSlide(View item) {
+        if (mActiveItem != item) {
+            if (mActiveItem != null) {
+                jumpClosed();
+            }
+            if (mConfig.getActionCount() == 0 && mFactory == null) return false;
+            mActiveItem = item;
+            mOffset = 0;
+            mWasOpen = false;
+        }
+        ensureControls();
+        mScrollable = resolveScrollable();
+        if (mScrollable <= 0) {
+            jumpClosed();
+            return false;
+        }
+        mSliding = true;
+        mGesture.setSuppressClick(true);
+        ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+        return true;
+    }
+
+    private void settle(float velocity) {
+        mSliding = false;
+        if (mActiveItem == null) return;
+        mGesture.setScrollable(mScrollable);
+        mGesture.endDrag();
+        int target = mGesture.settleTarget(mOffset, velocity);
+        if (target == mOffset) {
+            settled();
+            return;
+        }
+        ensureAnimation().startSpring(mOffset, velocity, target, mConfig.getAnimationDurationMs());
+    }
+
+    //手指抬起时的速度，单位px/s，展开方向（向左）为正
+    private float getReleaseVelocity() {
+        if (mVelocityTracker == null) return 0;
+        mVelocityTracker.computeCurrentVelocity(1000,
+                ViewConfiguration.get(getContext()).getScaledMaximumFlingVelocity());
+        return -mVelocityTracker.getXVelocity();
+    }
+
+    private SlideAnimation ensureAnimation() {
+        if (mAnimation == null) {
+            mAnimation = new SlideAnimation() {
+                @Override
+                void onUpdate(int value) {
+                    applyOffset(value);
+                }
+
+                @Override
+                void onEnd() {
+                    settled();
+                }
+            };
+        }
+        return mAnimation;
+    }
+
+    //归位结束，按最终位置回调
+    private void settled() {
+        View item = mActiveItem;
+        if (item == null) return;
+        if (mOffset >= mScrollable) {
+            if (!mWasOpen) {
+                mWasOpen = true;
+                if (mCallback != null) mCallback.onCompletelyOpen(item);
+            }
+        } else if (mOffset <= 0) {
+            boolean wasOpen = mWasOpen;
+            release();
+            if (mCallback != null) {
+                if (wasOpen) {
+                    mCallback.onCompleteClosed(item);
+                } else {
+                    mCallback.onPullBack(item);
+                }
+            }
+        }
+    }
+
+    //不做动画直接关闭，照常回调
+    private void jumpClosed() {
+        if (mActiveItem == null) return;
+        if (mAnimation != null) mAnimation.cancel();
+        mSliding = false;
+        applyOffset(0);
+        settled();
+    }
+
+    //当前行复位，移除侧滑view
+    private void release() {
+        if (mAnimation != null) mAnimation.cancel();
+        if (mActiveItem != null) {
+            mActiveItem.setTranslationX(0);
+        }
+        releaseControls();
+        mActiveItem = null;
+        mOffset = 0;
+        mWasOpen = false;
+        invalidate();
+    }
+
+    private void applyOffset(int offset) {
+        if (mActiveItem == null || offset == mOffset) return;
+        int old = mOffset;
+        mOffset = offset;
+        mActiveItem.setTranslationX(-offset);
+        if (mControls != null && mConfig.isDynamic()) {
+            //动态模式，侧滑view跟着行一起移动
+            for (int i = 0; i < mControls.size(); i++) {
+                mControls.get(i).setTranslationX(mScrollable - offset);
+            }
+        }
+        //只重画新旧两次露出区域的并集
+        if (getItemRect(mActiveItem)) {
+            invalidate(mRect.right - Math.max(old, offset), mRect.top, mRect.right, mRect.bottom);
+        }
+    }
+
+    private void ensureControls() {
+        if (mControls != null || mFactory == null || mConfig.getActionCount() > 0) return;
+        List<View> views = mControlPool != null ? mControlPool.acquire(mFactory, getContext())
+                : mFactory.getView(getContext());
+        if (views == null || views.size() == 0) return;
+        mControls = views;
+        mControlWidthPx = resolveControlWidths(views.size());
+        for (int i = 0; i < views.size(); i++) {
+            addViewInLayout(views.get(i), -1, new LayoutParams(LayoutParams.WRAP_CONTENT,
+                    LayoutParams.WRAP_CONTENT), true);
+        }
+        measureControls();
+        layoutControls();
+    }
+
+    private void releaseControls() {
+        if (mControls == null) return;
+        List<View> views = mControls;
+        mControls = null;
+        for (int i = 0; i < views.size(); i++) {
+            View v = views.get(i);
+            v.setTranslationX(0);
+            removeViewInLayout(v);
+        }
+        if (mControlPool != null) {
+            mControlPool.release(mFactory, views);
+        }
+    }
+
+    //配置或者factory中指定的宽度（px），没有指定的为-1，按测量的宽度
+    private int[] resolveControlWidths(int count) {
+        int[] w = new int[count];
+        List<Integer> widthDp = mFactory.getWidthDp();
+        float density = getResources().getDisplayMetrics().density;
+        for (int i = 0; i < count; i++) {
+            if (i < mConfig.getControlCount()) {
+                w[i] = mConfig.getControlWidthPx(i);
+            } else if (widthDp != null && i < widthDp.size()) {
+                w[i] = (int) (widthDp.get(i) * density + 0.5f);
+            } else {
+                w[i] = -1;
+            }
+        }
+        return w;
+    }
+
+    private int resolveScrollable() {
+        if (mConfig.getActionCount() > 0) return mConfig.getScrollablePx();
+        if (mControls == null) return 0;
+        int sum = 0;
+        for (int i = 0; i < mControls.size(); i++) {
+            sum += mControls.get(i).getMeasuredWidth();
+        }
+        return sum;
+    }
+
+    private void measureControls() {
+        if (mControls == null || mActiveItem == null) return;
+        int hspec = MeasureSpec.makeMeasureSpec(mActiveItem.getHeight(), MeasureSpec.EXACTLY);
+        for (int i = 0; i < mControls.size(); i++) {
+            int w = mControlWidthPx[i];
+            int wspec = w >= 0 ? MeasureSpec.makeMeasureSpec(w, MeasureSpec.EXACTLY)
+                    : MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.AT_MOST);
+            mControls.get(i).measure(wspec, hspec);
+        }
+    }
+
+    //侧滑view按完全展开时的位置排在行的右侧，动态模式再用平移跟随行
+    private void layoutControls() {
+        if (mControls == null || !getItemRect(mActiveItem)) return;
+        int right = mRect.right;
+        for (int i = mControls.size() - 1; i >= 0; i--) {
+            View v = mControls.get(i);
+            v.layout(right - v.getMeasuredWidth(), mRect.top, right, mRect.bottom);
+            right -= v.getMeasuredWidth();
+            v.setTranslationX(mConfig.isDynamic() ? mScrollable - mOffset : 0);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        measureControls();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (mActiveItem != null && mActiveItem.getParent() != getList()) {
+            //行已经被列表移除或复用
+            jumpClosed();
+            return;
+        }
+        layoutControls();
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (mControls != null && child != getList() && getItemRect(mActiveItem)) {
+            //侧滑view只画露出来的部分
+            int save = canvas.save();
+            canvas.clipRect(mRect.right - mOffset, mRect.top, mRect.right, mRect.bottom);
+            boolean more = super.drawChild(canvas, child, drawingTime);
+            canvas.restoreToCount(save);
+            return more;
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mOffset > 0 && mConfig.getActionCount() > 0 && getItemRect(mActiveItem)) {
+            int save = canvas.save();
+            canvas.clipRect(mRect.right - mOffset, mRect.top, mRect.right, mRect.bottom);
+            mConfig.drawActions(canvas, actionsLeft(), mRect.top, mRect.bottom);
+            canvas.restoreToCount(save);
+        }
+    }
+
+    //画出来的按钮的左边界，需要先调用getItemRect
+    private float actionsLeft() {
+        return mConfig.isDynamic() ? mRect.right - mOffset : mRect.right - mConfig.getScrollablePx();
+    }
+
+    private boolean inStrip(float x) {
+        return getItemRect(mActiveItem) && x >= mRect.right - mOffset && x < mRect.right;
+    }
+
+    //行在本布局坐标系中的位置（不含平移），保存在mRect中
+    private boolean getItemRect(View item) {
+        ViewGroup list = getList();
+        if (item == null || list == null || item.getParent() != list) return false;
+        int dx = list.getLeft() - list.getScrollX();
+        int dy = list.getTop() - list.getScrollY();
+        mRect.set(item.getLeft() + dx, item.getTop() + dy, item.getRight() + dx, item.getBottom() + dy);
+        return true;
+    }
+
+    private View findItemAt(float x, float y) {
+        ViewGroup list = getList();
+        if (list == null) return null;
+        float lx = x - list.getLeft() + list.getScrollX();
+        float ly = y - list.getTop() + list.getScrollY();
+        for (int i = list.getChildCount() - 1; i >= 0; i--) {
+            View child = list.getChildAt(i);
+            if (child.getVisibility() != VISIBLE) continue;
+            //不考虑侧滑的平移，展开的行露出的区域也算这一行
+            if (ly >= child.getTop() && ly < child.getBottom() && lx >= child.getLeft() && lx < child.getRight()) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    //列表是第一个子view
+    private ViewGroup getList() {
+        View child = getChildCount() > 0 ? getChildAt(0) : null;
+        return child instanceof ViewGroup ? (ViewGroup) child : null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.jupiter;
+
+/**
+ * 侧滑的性能统计，默认不开启。通过{@link SlideWrapper#setMetrics(SlideMetrics)}设置后开始统计，
+ * 一个列表的wrapper可以共用一个实例。每项指标是固定大小的直方图，记录时不分配对象，
+ * 定期用{@link #drain(SlideMetricsSink)}取出并清零。只能在主线程使用
+ */
+public final class SlideMetrics {
+
+    /**
+     * 从按下到确定横向滑动的时间，单位ms
+     */
+    public static final int METRIC_DECISION_MS = 0;
+    /**
+     * 从手指抬起到完全展开、关闭或拉回的回调的时间，单位ms
+     */
+    public static final int METRIC_SETTLE_MS = 1;
+    /**
+     * 一次手势（从按下到归位结束）中wrapper的measure次数
+     */
+    public static final int METRIC_MEASURES = 2;
+    /**
+     * 一次手势中wrapper的layout次数
+     */
+    public static final int METRIC_LAYOUTS = 3;
+    /**
+     * 一次手势中偏移量的更新次数
+     */
+    public static final int METRIC_OFFSET_UPDATES = 4;
+    /**
+     * 一次手势中wrapper发起的重绘次数
+     */
+    public static final int METRIC_INVALIDATIONS = 5;
+
+    public static final int METRIC_COUNT = 6;
+    public static final int BUCKET_COUNT = 16;
+
+    private final int[][] mBuckets = new int[METRIC_COUNT][BUCKET_COUNT];
+    private final int[] mCount = new int[METRIC_COUNT];
+    private final long[] mSum = new long[METRIC_COUNT];
+    private final int[] mMax = new int[METRIC_COUNT];
+
+    /**
+     * 记录一个样本
+     */
+    public void record(int metric, int value) {
+        if (value < 0) value = 0;
+        int bucket = value == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 32 - Integer.numberOfLeadingZeros(value));
+        mBuckets[metric][bucket]++;
+        mCount[metric]++;
+        mSum[metric] += value;
+        if (value > mMax[metric]) {
+            mMax[metric] = value;
+        }
+    }
+
+    public int getCount(int metric) {
+        return mCount[metric];
+    }
+
+    /**
+     * 把有数据的指标交给sink，然后清零
+     */
+    public void drain(SlideMetricsSink sink) {
+        for (int m = 0; m < METRIC_COUNT; m++) {
+            if (mCount[m] == 0) continue;
+            sink.onHistogram(m, mBuckets[m], mCount[m], mSum[m], mMax[m]);
+            reset(m);
+        }
+    }
+
+    public void clear() {
+        for (int m = 0; m < METRIC_COUNT; m++) {
+            reset(m);
+        }
+    }
+
+    private void reset(int metric) {
+        int[] buckets = mBuckets[metric];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = 0;
+        }
+        mCount[metric] = 0;
+        mSum[metric] = 0;
+        mMax[metric] = 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.jupiter;
+
+/**
+ * 接收{@link SlideMetrics}中的统计数据，由{@link SlideMetrics#drain(SlideMetricsSink)}在主线程调用
+ */
+public interface SlideMetricsSink {
+    /**
+     * 一项指标的直方图，没有数据的指标不回调
+     * @param metric 指标，SlideMetrics.METRIC_*
+     * @param buckets 每个桶的计数，第0个桶是0，第i个桶是[2^(i-1), 2^i)，最后一个桶包含更大的值。
+     *                这个数组在回调之后会被清零复用，需要保留时自己复制
+     * @param count 样本个数
+     * @param sum 样本之和
+     * @param max 最大的样本
+     */
+    void onHistogram(int metric, int[] buckets, int count, long sum, int max);
+}
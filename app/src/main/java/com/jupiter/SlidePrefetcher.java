@@ -0,0 +1,127 @@
+package com.jupiter;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 空闲时预取侧滑view，类似RecyclerView的GapWorker，一个列表共用一个。
+ * 在一帧的绘制完成后、下一个vsync之前的空闲时间里，给即将显示的行提前解析可滑动距离、
+ * 创建并测量延迟创建的侧滑view，或者给复用池补充侧滑view，这些工作就不会挤在行出现的那一帧里。
+ * 剩余时间不够做一项工作时留到下一帧。只能在主线程使用
+ */
+public class SlidePrefetcher implements Choreographer.FrameCallback, Runnable {
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    //等待预取的行
+    private final ArrayList<SlideWrapper> mQueue = new ArrayList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Context mContext;
+    private final long mFrameIntervalNanos;
+
+    //需要补充的复用池
+    private SlideControlPool mPool;
+    private SlideWrapper.ViewFactory mPoolFactory;
+    private int mPoolTarget;
+
+    private boolean mScheduled = false;
+    private long mDeadlineNanos;
+    //每项工作的平均耗时，用来判断剩余时间够不够
+    private long mAvgWrapperNanos = 0;
+    private long mAvgPoolNanos = 0;
+
+    public SlidePrefetcher(Context context) {
+        mContext = context;
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = wm != null ? wm.getDefaultDisplay().getRefreshRate() : 0;
+        mFrameIntervalNanos = refreshRate >= 30 ? (long) (1000000000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+
+    /**
+     * 预取即将显示的行，一般在onBindViewHolder/getView中setConfig、setViewFactory之后调用。
+     * 配合RecyclerView自己的预取时，提前绑定的行也会在显示之前准备好
+     */
+    public void schedule(SlideWrapper wrapper) {
+        if (!mQueue.contains(wrapper)) {
+            mQueue.add(wrapper);
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * 不再预取某一行，比如这一行被回收了
+     */
+    public void cancel(SlideWrapper wrapper) {
+        mQueue.remove(wrapper);
+    }
+
+    /**
+     * 空闲时把复用池中factory的侧滑view补充到count组（不超过池的上限）
+     */
+    public void warmPool(SlideControlPool pool, SlideWrapper.ViewFactory factory, int count) {
+        mPool = pool;
+        mPoolFactory = factory;
+        mPoolTarget = count;
+        scheduleFrame();
+    }
+
+    public void clear() {
+        mQueue.clear();
+        mPool = null;
+        mPoolFactory = null;
+    }
+
+    private void scheduleFrame() {
+        if (mScheduled) return;
+        mScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        //这一帧的布局绘制完成后才会执行post的消息，截止时间是下一个vsync
+        mDeadlineNanos = frameTimeNanos + mFrameIntervalNanos;
+        mHandler.post(this);
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        while (!mQueue.isEmpty()) {
+            long start = System.nanoTime();
+            if (start + mAvgWrapperNanos > mDeadlineNanos) {
+                scheduleFrame();
+                return;
+            }
+            mQueue.remove(0).prefetch();
+            mAvgWrapperNanos = average(mAvgWrapperNanos, System.nanoTime() - start);
+        }
+        while (mPool != null && mPool.getScrapCount(mPoolFactory.getClass()) < mPoolTarget) {
+            long start = System.nanoTime();
+            if (start + mAvgPoolNanos > mDeadlineNanos) {
+                scheduleFrame();
+                return;
+            }
+            int before = mPool.getScrapCount(mPoolFactory.getClass());
+            List<View> views = mPoolFactory.getView(mContext);
+            mPool.release(mPoolFactory, views);
+            mAvgPoolNanos = average(mAvgPoolNanos, System.nanoTime() - start);
+            if (mPool.getScrapCount(mPoolFactory.getClass()) <= before) {
+                //池已经满了
+                break;
+            }
+        }
+        mPool = null;
+        mPoolFactory = null;
+    }
+
+    private static long average(long avg, long sample) {
+        return avg == 0 ? sample : (avg / 4 * 3 + sample / 4);
+    }
+}
@@ -0,0 +1,194 @@
+package com.jupiter;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * 把{@link SlideTouchTrace}按原来的时间间隔回放给一个SlideWrapper，事件直接交给它的dispatchTouchEvent，
+ * 和手指操作走同样的路径。回放结束并且归位动画完成后回调结果：每个事件的处理耗时、处理事件时的内存分配次数，
+ * 重绘请求次数，以及最后的展开状态和偏移量，可以在设备上对比不同版本的触摸处理开销。只能在主线程使用
+ */
+public class SlideTouchReplayer {
+
+    /**
+     * 回放完成的回调
+     */
+    public interface Listener {
+        void onReplayFinished(SlideWrapper wrapper, Result result);
+    }
+
+    /**
+     * 回放结果
+     */
+    public static final class Result {
+        /**
+         * 每个事件在dispatchTouchEvent中的耗时，单位ns，和轨迹中的事件一一对应
+         */
+        public final long[] handleNanos;
+        /**
+         * 处理所有事件时在主线程上的内存分配次数，运行时不支持统计时为-1
+         */
+        public final int allocations;
+        /**
+         * 从开始回放到归位结束，wrapper发出的重绘请求次数
+         */
+        public final int invalidations;
+        /**
+         * 最后是否完全展开
+         */
+        public final boolean open;
+        /**
+         * 最后的偏移量，单位px
+         */
+        public final int offsetPx;
+
+        Result(long[] handleNanos, int allocations, int invalidations, boolean open, int offsetPx) {
+            this.handleNanos = handleNanos;
+            this.allocations = allocations;
+            this.invalidations = invalidations;
+            this.open = open;
+            this.offsetPx = offsetPx;
+        }
+
+        public long getMaxHandleNanos() {
+            long max = 0;
+            for (long n : handleNanos) {
+                max = Math.max(max, n);
+            }
+            return max;
+        }
+
+        public long getTotalHandleNanos() {
+            long sum = 0;
+            for (long n : handleNanos) {
+                sum += n;
+            }
+            return sum;
+        }
+    }
+
+    private final SlideWrapper mWrapper;
+    private final SlideTouchTrace mTrace;
+    private Listener mListener;
+    private long[] mHandleNanos;
+    private int mAllocations;
+    private int mInvalidateStart;
+    //检测是否支持统计分配次数时分配的对象，存到字段里避免被优化掉
+    private long[] mProbe;
+    private int mNext;
+    private long mStartTime;
+    private boolean mRunning = false;
+
+    private final Runnable mDispatchNext = new Runnable() {
+        @Override
+        public void run() {
+            dispatchNext();
+        }
+    };
+
+    private final Runnable mWaitSettle = new Runnable() {
+        @Override
+        public void run() {
+            waitSettle();
+        }
+    };
+
+    public SlideTouchReplayer(SlideWrapper wrapper, SlideTouchTrace trace) {
+        mWrapper = wrapper;
+        mTrace = trace;
+    }
+
+    /**
+     * 开始回放，wrapper需要已经显示在窗口中
+     */
+    public void start(Listener listener) {
+        cancel();
+        mListener = listener;
+        mHandleNanos = new long[mTrace.getEventCount()];
+        mAllocations = isAllocCountingSupported() ? 0 : -1;
+        mInvalidateStart = mWrapper.getInvalidateCount();
+        mNext = 0;
+        mStartTime = SystemClock.uptimeMillis();
+        mRunning = true;
+        dispatchNext();
+    }
+
+    public void cancel() {
+        if (!mRunning) return;
+        mRunning = false;
+        mWrapper.removeCallbacks(mDispatchNext);
+        mWrapper.removeCallbacks(mWaitSettle);
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void dispatchNext() {
+        if (!mRunning) return;
+        int count = mTrace.getEventCount();
+        long now = SystemClock.uptimeMillis();
+        //同一时刻及之前的事件一起分发
+        while (mNext < count && mStartTime + mTrace.getTime(mNext) <= now) {
+            int i = mNext++;
+            long downTime = mStartTime + mTrace.getTime(findDown(i));
+            MotionEvent ev = MotionEvent.obtain(downTime, mStartTime + mTrace.getTime(i), mTrace.getAction(i),
+                    mTrace.getRawX(i), mTrace.getRawY(i), 0);
+            //保留屏幕坐标，只把相对坐标改成记录时的值
+            ev.setLocation(mTrace.getX(i), mTrace.getY(i));
+            if (mAllocations >= 0) {
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+            }
+            long start = System.nanoTime();
+            mWrapper.dispatchTouchEvent(ev);
+            mHandleNanos[i] = System.nanoTime() - start;
+            if (mAllocations >= 0) {
+                mAllocations += Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+            }
+            ev.recycle();
+        }
+        if (mNext < count) {
+            mWrapper.postDelayed(mDispatchNext, mStartTime + mTrace.getTime(mNext) - now);
+        } else {
+            waitSettle();
+        }
+    }
+
+    //等归位动画结束后再统计最终状态
+    private void waitSettle() {
+        if (!mRunning) return;
+        if (mWrapper.isSettling()) {
+            mWrapper.postOnAnimation(mWaitSettle);
+            return;
+        }
+        mRunning = false;
+        if (mListener != null) {
+            mListener.onReplayFinished(mWrapper,
+                    new Result(mHandleNanos, mAllocations, mWrapper.getInvalidateCount() - mInvalidateStart,
+                            mWrapper.isOpen(), mWrapper.getXOffset()));
+        }
+    }
+
+    //有的运行时不统计分配次数，计数一直是0，先分配一个对象试一下
+    @SuppressWarnings("deprecation")
+    private boolean isAllocCountingSupported() {
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        mProbe = new long[1];
+        int allocs = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+        return allocs > 0;
+    }
+
+    //事件所在手势的按下事件
+    private int findDown(int index) {
+        for (int i = index; i >= 0; i--) {
+            if (mTrace.getAction(i) == MotionEvent.ACTION_DOWN) return i;
+        }
+        return 0;
+    }
+}
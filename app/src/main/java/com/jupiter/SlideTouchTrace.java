@@ -0,0 +1,163 @@
+package com.jupiter;
+
+import android.view.MotionEvent;
+
+/**
+ * 触摸轨迹，记录SlideWrapper收到的触摸事件，用来复现侧滑卡顿等问题，配合{@link SlideTouchReplayer}回放。
+ * 通过{@link SlideWrapper#setTouchTrace(SlideTouchTrace)}开始记录，{@link #toByteArray()}导出，
+ * {@link #fromByteArray(byte[])}导入。
+ * 导入的轨迹是只读的，不能继续记录。
+ * 二进制格式：4字节头（魔数和版本），之后每个事件固定21字节：相对第一个事件的时间（int，ms）、
+ * action（byte）、相对wrapper的x/y和屏幕坐标rawX/rawY（float），大端。只记录单指事件。只能在主线程使用
+ */
+public class SlideTouchTrace {
+
+    private static final int MAGIC = 0x5357;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4;
+    private static final int EVENT_SIZE = 21;
+
+    private byte[] mData;
+    private int mSize;
+    private final int mMaxEvents;
+    private long mStartTime = -1;
+    //从字节数组导入的轨迹没有记录时的时间基准，不再追加事件
+    private boolean mReadOnly = false;
+
+    public SlideTouchTrace() {
+        this(4096);
+    }
+
+    /**
+     * @param maxEvents 最多记录的事件个数，超过后不再记录
+     */
+    public SlideTouchTrace(int maxEvents) {
+        mMaxEvents = maxEvents;
+        mData = new byte[HEADER_SIZE + EVENT_SIZE * Math.min(Math.max(maxEvents, 1), 64)];
+        mData[0] = (byte) (MAGIC >> 8);
+        mData[1] = (byte) MAGIC;
+        mData[2] = VERSION;
+        mSize = HEADER_SIZE;
+    }
+
+    /**
+     * 从{@link #toByteArray()}导出的数据恢复，格式不对时抛出IllegalArgumentException
+     */
+    public static SlideTouchTrace fromByteArray(byte[] data) {
+        if (data.length < HEADER_SIZE || ((data[0] & 0xff) << 8 | (data[1] & 0xff)) != MAGIC
+                || data[2] != VERSION || (data.length - HEADER_SIZE) % EVENT_SIZE != 0) {
+            throw new IllegalArgumentException("Not a touch trace");
+        }
+        int count = (data.length - HEADER_SIZE) / EVENT_SIZE;
+        SlideTouchTrace trace = new SlideTouchTrace(count);
+        trace.mData = data.clone();
+        trace.mSize = data.length;
+        trace.mReadOnly = true;
+        return trace;
+    }
+
+    /**
+     * 记录一个事件，由SlideWrapper在dispatchTouchEvent中调用。多指触摸的事件不记录
+     */
+    public void record(MotionEvent ev) {
+        record(ev.getEventTime(), ev.getActionMasked(), ev.getPointerCount(),
+                ev.getX(), ev.getY(), ev.getRawX(), ev.getRawY());
+    }
+
+    //和record(MotionEvent)相同，参数是事件的各个字段，方便在JVM上测试
+    void record(long eventTime, int action, int pointerCount, float x, float y, float rawX, float rawY) {
+        if (mReadOnly || getEventCount() >= mMaxEvents) return;
+        if (pointerCount > 1 || action == MotionEvent.ACTION_POINTER_DOWN
+                || action == MotionEvent.ACTION_POINTER_UP) {
+            return;
+        }
+        if (mStartTime < 0) {
+            mStartTime = eventTime;
+        }
+        if (mSize + EVENT_SIZE > mData.length) {
+            byte[] data = new byte[Math.min(mData.length * 2, HEADER_SIZE + EVENT_SIZE * mMaxEvents)];
+            System.arraycopy(mData, 0, data, 0, mSize);
+            mData = data;
+        }
+        int p = mSize;
+        p = putInt(p, (int) (eventTime - mStartTime));
+        mData[p++] = (byte) action;
+        p = putInt(p, Float.floatToIntBits(x));
+        p = putInt(p, Float.floatToIntBits(y));
+        p = putInt(p, Float.floatToIntBits(rawX));
+        putInt(p, Float.floatToIntBits(rawY));
+        mSize += EVENT_SIZE;
+    }
+
+    public int getEventCount() {
+        return (mSize - HEADER_SIZE) / EVENT_SIZE;
+    }
+
+    /**
+     * 第index个事件相对第一个事件的时间，单位ms
+     */
+    public int getTime(int index) {
+        return getInt(offset(index));
+    }
+
+    public int getAction(int index) {
+        return mData[offset(index) + 4];
+    }
+
+    public float getX(int index) {
+        return Float.intBitsToFloat(getInt(offset(index) + 5));
+    }
+
+    public float getY(int index) {
+        return Float.intBitsToFloat(getInt(offset(index) + 9));
+    }
+
+    public float getRawX(int index) {
+        return Float.intBitsToFloat(getInt(offset(index) + 13));
+    }
+
+    public float getRawY(int index) {
+        return Float.intBitsToFloat(getInt(offset(index) + 17));
+    }
+
+    /**
+     * 是否是从字节数组导入的只读轨迹
+     */
+    public boolean isReadOnly() {
+        return mReadOnly;
+    }
+
+    public byte[] toByteArray() {
+        byte[] data = new byte[mSize];
+        System.arraycopy(mData, 0, data, 0, mSize);
+        return data;
+    }
+
+    /**
+     * 清空已经记录的事件，导入的轨迹清空后可以重新记录
+     */
+    public void clear() {
+        mSize = HEADER_SIZE;
+        mStartTime = -1;
+        mReadOnly = false;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= getEventCount()) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + getEventCount());
+        }
+        return HEADER_SIZE + index * EVENT_SIZE;
+    }
+
+    private int putInt(int p, int v) {
+        mData[p] = (byte) (v >> 24);
+        mData[p + 1] = (byte) (v >> 16);
+        mData[p + 2] = (byte) (v >> 8);
+        mData[p + 3] = (byte) v;
+        return p + 4;
+    }
+
+    private int getInt(int p) {
+        return (mData[p] & 0xff) << 24 | (mData[p + 1] & 0xff) << 16 | (mData[p + 2] & 0xff) << 8 | (mData[p + 3] & 0xff);
+    }
+}
@@ -4,18 +4,26 @@ package com.jupiter;
  * Created by wangqiang on 16/11/17.
  */
 
-import android.animation.ValueAnimator;
+import android.animation.TimeInterpolator;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Display;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
-import android.widget.RelativeLayout;
-import android.widget.Scroller;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.TextView;
 import com.tencent.stringtest.R;
 import java.util.ArrayList;
@@ -26,7 +34,7 @@ import java.util.List;
  * 滑动删除的包装器，任何想拥有侧滑删除功能的view都可以用该包装器来包装
  */
 
-public class SlideWrapper extends RelativeLayout {
+public class SlideWrapper extends ViewGroup {
 
     private static final String TAG = "SlideWrapper";
 
@@ -62,6 +70,29 @@ public class SlideWrapper extends RelativeLayout {
         void onPullBack(SlideWrapper wrapper);
     }
 
+    /**
+     * 侧滑进度的回调，拖动和动画过程中每帧最多一次，在主线程调用，可以用来让图标、透明度等跟随侧滑变化
+     */
+    public interface SlideProgressListener {
+        /**
+         * @param wrapper
+         * @param fraction 展开的比例，0为关闭，1为完全展开
+         * @param offsetPx 展开的距离，单位px
+         */
+        void onSlide(SlideWrapper wrapper, float fraction, int offsetPx);
+    }
+
+    /**
+     * 点击直接绘制的按钮（{@link SlideConfig.Builder#addAction}）时的回调
+     */
+    public interface OnActionClickListener {
+        /**
+         * @param wrapper
+         * @param index 按钮序号，和添加的顺序一致
+         */
+        void onActionClick(SlideWrapper wrapper, int index);
+    }
+
     /**
      * 不在布局中写，运行期动态包装时可实现该接口提供侧滑view
      */
@@ -80,22 +111,319 @@ public class SlideWrapper extends RelativeLayout {
     }
 
     public void setCallback(Callback cb) {
-        mCallback = new CallbackWrpper(cb);
+        mCallback = cb;
+    }
+
+    /**
+     * 设置侧滑进度回调。设置后静态模式的归位动画不再交给ViewPropertyAnimator（{@link SlideConfig.Builder#renderThreadSettle}），
+     * 否则动画期间主线程拿不到进度
+     */
+    public void setSlideProgressListener(SlideProgressListener listener) {
+        mProgressListener = listener;
+    }
+
+    /**
+     * 记录之后收到的触摸事件，传null停止记录
+     */
+    public void setTouchTrace(SlideTouchTrace trace) {
+        mTouchTrace = trace;
+    }
+
+    /**
+     * 开启性能统计，传null关闭，可以整个列表共用一个
+     */
+    public void setMetrics(SlideMetrics metrics) {
+        mMetrics = metrics;
+        if (metrics == null) {
+            mMetricsActive = false;
+        }
+    }
+
+    public void setOnActionClickListener(OnActionClickListener listener) {
+        mActionClickListener = listener;
+    }
+
+    /**
+     * 加入列表级别的协调器，由它保证同时只有一行展开、列表滚动时关闭展开的行
+     */
+    public void setCoordinator(SlideCoordinator coordinator) {
+        if (coordinator == mCoordinator) return;
+        if (mCoordinator != null) {
+            mCoordinator.onClosed(this);
+        }
+        mCoordinator = coordinator;
+        if (mCoordinator != null && getXOffset() > 0) {
+            mCoordinator.onOpened(this);
+        }
+    }
+
+    /**
+     * 设置侧滑配置，同一列表中的wrapper应共享同一个SlideConfig实例
+     * @param config 为null时使用{@link SlideConfig#DEFAULT}
+     */
+    public void setConfig(SlideConfig config) {
+        if (config == null) config = SlideConfig.DEFAULT;
+        if (config == mConfig) return;
+        boolean modeChanged = config.getMode() != mConfig.getMode();
+        if (modeChanged && (getScrollX() != 0 || (mWrappedView != null && mWrappedView.getTranslationX() != 0))) {
+            //模式变了，先复位到关闭状态
+            cancelSettle();
+            scrollTo(0, 0);
+            if (mWrappedView != null) mWrappedView.setTranslationX(0);
+        }
+        mConfig = config;
+        invalidateControlWidths();
+        requestLayout();
+    }
+
+    public SlideConfig getConfig() {
+        return mConfig;
     }
 
     //设置自己的ViewFactory,需要在运行时包装子View时调用
     public void setViewFactory(ViewFactory factory) {
         if (factory == null) return;
+        if (mIsFromFactory) {
+            //去掉之前factory生成的侧滑view，避免重复设置时越加越多
+            releaseControlViews();
+            resolveChildren();
+            for (int i = mControlView.size() - 1; i >= 0; i--) {
+                removeView(mControlView.get(i));
+            }
+        }
         mFactory = factory;
-        mControlView = mFactory.getView(getContext());
         mIsFromFactory = true;
-        if (mControlView != null) {
-            for (View v : mControlView) {
-                addView(v);
+        invalidateControlWidths();
+        mChildrenDirty = true;
+        if ((mConfig.isLazyControls() || mControlPool != null) && resolveControlWidths().length > 0) {
+            //延迟创建：先只占住侧滑的宽度，第一次横向拖动或调用open()时再创建
+            mControlsPending = true;
+            return;
+        }
+        mControlsPending = false;
+        List<View> views = mFactory.getView(getContext());
+        if (views != null) {
+            for (int i = 0; i < views.size(); i++) {
+                //直接标记为侧滑view，不依赖tag
+                addView(views.get(i), new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT,
+                        LayoutParams.ROLE_CONTROL));
+            }
+        }
+    }
+
+    /**
+     * 设置侧滑view复用池，一般整个列表共用一个。
+     * 设置后ViewFactory的侧滑view在展开时从池中取，关闭或从窗口移除时还回池中，
+     * 需要能事先知道侧滑view的宽度（SlideConfig或ViewFactory.getWidthDp()），否则不会使用复用池。
+     * 需要在setViewFactory之前调用
+     */
+    public void setControlPool(SlideControlPool pool) {
+        if (pool == mControlPool) return;
+        releaseControlViews();
+        mControlPool = pool;
+    }
+
+    //延迟创建模式下，真正需要展开时才创建侧滑view，直接测量布局，不触发整个列表重新布局
+    private void ensureControlViews() {
+        if (!mControlsPending) return;
+        mControlsPending = false;
+        List<View> views;
+        if (mControlPool != null) {
+            views = mControlPool.acquire(mFactory, getContext());
+            mPooledViews = views;
+        } else {
+            views = mFactory.getView(getContext());
+        }
+        if (views == null || views.size() == 0) return;
+        for (int i = 0; i < views.size(); i++) {
+            View v = views.get(i);
+            if (!mConfig.isDynamic()) {
+                v.setEnabled(mEnable);
+            }
+            addViewInLayout(v, -1, new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT,
+                    LayoutParams.ROLE_CONTROL), true);
+        }
+        resolveChildren();
+        if (mWrappedView != null && getWidth() > 0) {
+            measureControlViews(MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY),
+                    mWrappedView.getMeasuredHeight());
+            layoutControlViews();
+            invalidate();
+            mInvalidateCount++;
+        }
+    }
+
+    //空闲时的预取，由SlidePrefetcher调用：提前解析可滑动距离，延迟创建的侧滑view提前创建并按指定宽度测量。
+    //使用复用池时不在这里创建，由预取器给池补充
+    void prefetch() {
+        resolveChildren();
+        if (mScrollable == -1 && (resolveControlWidths().length > 0 || getWidth() > 0)) {
+            mScrollable = clacScrollableDistance();
+        }
+        if (!mControlsPending || mControlPool != null || getXOffset() > 0) return;
+        ensureControlViews();
+        if (getWidth() == 0) {
+            //还没有布局过，先按指定宽度测量一次，高度等布局时再确定
+            int[] widthPx = resolveControlWidths();
+            int hspec = mWrappedView != null && mWrappedView.getMeasuredHeight() > 0
+                    ? MeasureSpec.makeMeasureSpec(mWrappedView.getMeasuredHeight(), MeasureSpec.EXACTLY)
+                    : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            for (int i = 0; i < mControlView.size() && i < widthPx.length; i++) {
+                mControlView.get(i).measure(MeasureSpec.makeMeasureSpec(widthPx[i], MeasureSpec.EXACTLY), hspec);
+            }
+        }
+    }
+
+    //关闭后把侧滑view还给复用池
+    private void releaseControlViews() {
+        if (mControlPool == null || mPooledViews == null) return;
+        List<View> views = mPooledViews;
+        mPooledViews = null;
+        for (int i = 0; i < views.size(); i++) {
+            removeViewInLayout(views.get(i));
+        }
+        mControlPool.release(mFactory, views);
+        mControlsPending = true;
+        invalidate();
+        mInvalidateCount++;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mCoordinator != null && getXOffset() > 0) {
+            mCoordinator.onOpened(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        //移出窗口（比如列表项滚出屏幕被回收）后不再为它做任何动画和延迟任务：
+        //正在拖动或做动画的直接跳到最终状态并回调，挂起的长按、帧回调全部移除
+        removeCallbacks(mLongPressRunnable);
+        if (mGesture.isDragging() || mDragPending) {
+            endDrag();
+            if (!isSettling()) {
+                int offset = getXOffset();
+                if (offset > 0 && offset < mScrollable) {
+                    //拖到一半，按位置决定最终状态
+                    mGesture.setScrollable(mScrollable);
+                    if (mGesture.settleTarget(offset, 0) > 0) {
+                        mNotifyCompleteOpen = true;
+                        mNotifyCompleteClose = false;
+                        applyOffset(mScrollable);
+                    } else {
+                        mNotifyPullback = !mNotifyCompleteClose;
+                        applyOffset(0);
+                    }
+                    callback();
+                }
+            }
+        }
+        finishSettle();
+        if (mHorizontalDrag) {
+            mHorizontalDrag = false;
+            if (NESTED_SCROLL) stopNestedScroll();
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        super.onDetachedFromWindow();
+        dropLayers();
+        saveState();
+        releaseControlViews();
+        if (mCoordinator != null) {
+            mCoordinator.onClosed(this);
+        }
+        //重新attach时可能已经换了内容或配置，缓存的几何信息重新计算
+        invalidateControlWidths();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        //侧滑view的位置和测量出的宽度都和大小有关，可滑动距离重新计算；指定了宽度时和大小无关，保留预先解析的值
+        if (resolveControlWidths().length == 0) {
+            mScrollable = -1;
+        }
+    }
+
+    /**
+     * SlideWrapper的布局参数，可以用layout_slide_role直接声明子view的角色，
+     * 不声明时按android:tag="ctrl"来区分侧滑view。
+     * 被包装的view支持layout_margin；侧滑view的宽度由配置或测量决定，紧贴被包装的view的右边，不支持margin
+     */
+    public static class LayoutParams extends ViewGroup.MarginLayoutParams {
+        /**
+         * 没有声明角色，按tag判断
+         */
+        public static final int ROLE_AUTO    = 0;
+        /**
+         * 被包装的view
+         */
+        public static final int ROLE_CONTENT = 1;
+        /**
+         * 侧滑view
+         */
+        public static final int ROLE_CONTROL = 2;
+
+        public int role = ROLE_AUTO;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+            TypedArray a = c.obtainStyledAttributes(attrs, R.styleable.SlideWrapper_Layout);
+            role = a.getInt(R.styleable.SlideWrapper_Layout_layout_slide_role, ROLE_AUTO);
+            a.recycle();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(int width, int height, int role) {
+            super(width, height);
+            this.role = role;
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+            if (source instanceof LayoutParams) {
+                role = ((LayoutParams) source).role;
+            }
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+            if (source instanceof LayoutParams) {
+                role = ((LayoutParams) source).role;
             }
         }
     }
 
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if (p instanceof MarginLayoutParams) {
+            return new LayoutParams((MarginLayoutParams) p);
+        }
+        return new LayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
     /**
      * 空的实现
      */
@@ -177,13 +505,19 @@ public class SlideWrapper extends RelativeLayout {
             ArrayList<View> views = new ArrayList<>();
             views.add(toTop);
             views.add(delete);
+            //这些列表只取一次，padding换算成px后设置，不修改paddingDp本身
+            List<Integer> bg = getBackgroundColor();
+            List<Integer> txtClr = getTextColor();
+            List<String> text = getText();
+            List<Integer> txtSize = getTextSize();
+            int padding = dip2px(context, paddingDp);
             for (int i = 0; i < views.size(); i++) {
                 TextView tv = (TextView)views.get(i);
-                paddingDp = dip2px(context, paddingDp);
-                tv.setBackgroundColor(getBackgroundColor().get(i));
-                tv.setTextColor(getTextColor().get(i));
-                tv.setText(getText().get(i));
-                tv.setTextSize(dip2px(context, getTextSize().get(i)));
+                tv.setPadding(padding, 0, padding, 0);
+                tv.setBackgroundColor(bg.get(i));
+                tv.setTextColor(txtClr.get(i));
+                tv.setText(text.get(i));
+                tv.setTextSize(dip2px(context, txtSize.get(i)));
                 tv.setGravity(Gravity.CENTER);
             }
             return views;
@@ -208,101 +542,204 @@ public class SlideWrapper extends RelativeLayout {
     @Override
     public void onFinishInflate() {
         super.onFinishInflate();
-        mControlView = findControlView();
-        mWrappedView = findContentView();
+        resolveChildren();
         enableControlView(false);
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        Context c = getContext();
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
-        View contentView = findContentView();
+        mMeasureCount++;
+        resolveChildren();
+        View contentView = mWrappedView;
+        int w = 0, h = 0;
         if (contentView != null) {
-            int h = contentView.getMeasuredHeight();
-            if (mControlView != null && mControlView.size() > 0) {
-                int controlViewW = 0;
-                for (int i = 0; i < mControlView.size(); i++) {
-                    View cv = mControlView.get(i);
-                    controlViewW = mIsFromFactory ? dip2px(c, mFactory.getWidthDp().get(i)) : cv.getMeasuredWidth();
-                    int wspec = MeasureSpec.makeMeasureSpec(controlViewW, MeasureSpec.EXACTLY);
-                    int hspec = MeasureSpec.makeMeasureSpec(h, MeasureSpec.EXACTLY);
-                    cv.measure(wspec, hspec);
-                }
+            //被包装的view只测量一次，wrapper的大小由它（加上margin）决定
+            measureChildWithMargins(contentView, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            MarginLayoutParams lp = (MarginLayoutParams) contentView.getLayoutParams();
+            w = contentView.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+            h = contentView.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+        }
+        w = Math.max(w + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        h = Math.max(h + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+        setMeasuredDimension(resolveSize(w, widthMeasureSpec), resolveSize(h, heightMeasureSpec));
+        measureControlViews(widthMeasureSpec, contentView != null ? contentView.getMeasuredHeight() : 0);
+    }
+
+    //侧滑view只测量一次：高度和被包装的view一致，宽度优先用指定的宽度
+    private void measureControlViews(int widthMeasureSpec, int contentH) {
+        int[] widthPx = resolveControlWidths();
+        int hspec = MeasureSpec.makeMeasureSpec(contentH, MeasureSpec.EXACTLY);
+        for (int i = 0; i < mControlView.size(); i++) {
+            View cv = mControlView.get(i);
+            int wspec;
+            if (i < widthPx.length) {
+                wspec = MeasureSpec.makeMeasureSpec(widthPx[i], MeasureSpec.EXACTLY);
+            } else {
+                wspec = getChildMeasureSpec(widthMeasureSpec, 0, cv.getLayoutParams().width);
             }
+            cv.measure(wspec, hspec);
         }
     }
 
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        View contentView = findContentView();
+        mLayoutCount++;
+        resolveChildren();
+        View contentView = mWrappedView;
         if (contentView == null) {
             Log.e(TAG, "No content view!!!");
             return;
         }
-        contentView.layout(0, 0, contentView.getMeasuredWidth(), contentView.getMeasuredHeight());
-        if (mControlView != null && mControlView.size() > 0) {
-            if (mMode.equals(MODE_DYNAMIC)) {
-                int left = getMeasuredWidth();
+        MarginLayoutParams lp = (MarginLayoutParams) contentView.getLayoutParams();
+        int left = getPaddingLeft() + lp.leftMargin;
+        int top = getPaddingTop() + lp.topMargin;
+        contentView.layout(left, top, left + contentView.getMeasuredWidth(), top + contentView.getMeasuredHeight());
+        if (mPendingOffset >= 0) {
+            //绑定时还不知道可滑动距离，测量之后再恢复
+            int offset = mPendingOffset;
+            mPendingOffset = -1;
+            if (mScrollable <= 0) {
+                mScrollable = clacScrollableDistance();
+            }
+            if (mScrollable > 0) {
+                jumpToOffset(offset);
+            }
+        }
+        if (mControlsPending && getXOffset() > 0) {
+            //侧滑view已经还给复用池，但是重新attach时仍是展开的，重新取回来
+            ensureControlViews();
+        }
+        layoutControlViews();
+    }
+
+    //侧滑view和被包装的view上下对齐，静态模式排在它右边以内（被它盖住），动态模式排在它右边以外
+    private void layoutControlViews() {
+        if (mControlView.size() > 0) {
+            int top = contentTop();
+            if (mConfig.isDynamic()) {
+                int left = revealEdge();
                 for (int i = 0; i < mControlView.size(); i++) {
                     View ctrlView = mControlView.get(i);
-                    ctrlView.layout(left, 0, left + ctrlView.getMeasuredWidth(), ctrlView.getMeasuredHeight());
+                    ctrlView.layout(left, top, left + ctrlView.getMeasuredWidth(), top + ctrlView.getMeasuredHeight());
                     left += ctrlView.getMeasuredWidth();
                 }
             } else {
-                int right = getMeasuredWidth();
+                int right = revealEdge();
                 for (int i = mControlView.size() -1; i >= 0; i--) {
                     View ctrlView = mControlView.get(i);
-                    ctrlView.layout(right - ctrlView.getMeasuredWidth(), 0, right, getMeasuredHeight());
+                    ctrlView.layout(right - ctrlView.getMeasuredWidth(), top, right, top + ctrlView.getMeasuredHeight());
                     right -= ctrlView.getMeasuredWidth();
                 }
             }
         }
     }
 
+    //侧滑露出区域的右边界：被包装的view（不含平移）的右边，考虑了padding和margin
+    private int revealEdge() {
+        if (mWrappedView != null && mWrappedView.getRight() > 0) {
+            return mWrappedView.getRight();
+        }
+        return getWidth() - getPaddingRight();
+    }
+
+    private int contentTop() {
+        return mWrappedView != null && mWrappedView.getBottom() > 0 ? mWrappedView.getTop() : getPaddingTop();
+    }
+
+    private int contentBottom() {
+        return mWrappedView != null && mWrappedView.getBottom() > 0 ? mWrappedView.getBottom()
+                : getHeight() - getPaddingBottom();
+    }
+
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
-        int deltaX = 0, deltaY = 0;
+        if (mTouchTrace != null) {
+            mTouchTrace.record(ev);
+        }
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            } else {
+                mVelocityTracker.clear();
+            }
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(ev);
+        }
         switch (ev.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                mIsDecided = false;
+                mHorizontalDrag = false;
                 mIsOpenWhenTouchDown = false;
-                mXDown = (int)ev.getX();
-                mYDown = (int)ev.getY();
-                mIsMoved = false;
-                mX = mXDown;
-                mY = mYDown;
-                if (!doNotPerformClick) {
+                mGesture.onDown(ev.getX(), ev.getY(), ev.getRawX(), ev.getEventTime());
+                if (mMetrics != null) {
+                    beginGestureMetrics();
+                }
+                if (isSettling()) {
+                    //动画进行中被按住，停在当前位置由手指接管，这次按下不算点击
+                    cancelSettle();
+                    mNotifyCompleteOpen = false;
+                    mNotifyPullback = false;
+                    mGesture.setSuppressClick(true);
+                }
+                mOffsetAtDown = getXOffset();
+                if (!mGesture.isClickSuppressed()) {
+                    if (mLongPressRunnable == null) {
+                        //大部分行不会被按下，用到时再创建
+                        mLongPressRunnable = new Runnable() {
+                            @Override
+                            public void run() {
+                                performLongClick();
+                            }
+                        };
+                    }
                     postDelayed(mLongPressRunnable, LONG_CLICK_INTERVAL);
                 }
                 break;
             case MotionEvent.ACTION_MOVE:
-                if (Math.abs(ev.getX() - mX) > CLICK_DISTANCE &&
-                        Math.abs(ev.getY() - mY) > CLICK_DISTANCE) {
-                    mIsMoved = true;
+                //移动超过touch slop才判断方向，和父控件（列表）判断纵向滑动用的是同一个距离，
+                //这样在同一个slop内双方就能确定由谁处理，不会来回抢
+                int decision = mGesture.onMove(ev.getX(), ev.getY());
+                if (!mGesture.isLongPressValid()) {
                     removeCallbacks(mLongPressRunnable);
                 }
-                if (!mIsDecided) {
-                    deltaX = Math.abs((int) ev.getX() - (int) mXDown);
-                    deltaY = Math.abs((int) ev.getY() - (int) mYDown);
-                    if (deltaX > 0 && deltaY > 0) {
-                        mIsDecided = true;
-                        float tan = (float) deltaX / deltaY;
-                        if (tan > TAN60) {
-                            //当角度值超过60度的时候，就处理触摸事件，同时把点击事件暂时禁用掉
-                            doNotPerformClick = true;
-                            removeCallbacks(mLongPressRunnable);
-                            requestDisallowInterceptTouchEvent(true);
-                        }
+                if (decision == SlideGestureEngine.DECISION_HORIZONTAL) {
+                    mHorizontalDrag = true;
+                    if (mMetricsActive) {
+                        mMetrics.record(SlideMetrics.METRIC_DECISION_MS,
+                                (int) (ev.getEventTime() - mGesture.getDownTime()));
+                    }
+                    //只阻止父控件拦截，wrapper自己还要在下面的分发中拦截，从已经处理了DOWN的子view手里接过事件
+                    ViewParent parent = getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                    ensureControlViews();
+                    promoteLayers();
+                    if (NESTED_SCROLL) {
+                        startNestedScroll(SCROLL_AXIS_HORIZONTAL);
+                    }
+                    if (mCoordinator != null) {
+                        mCoordinator.onSlideStart(this);
                     }
                 }
+                //纵向滑动完全交给父控件，不拦截也不阻止父控件拦截
                 break;
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_UP:
                 removeCallbacks(mLongPressRunnable);
-                requestDisallowInterceptTouchEvent(false);
-                if (mIsOpenWhenTouchDown && mCloseOnClick) {
+                if (mHorizontalDrag && getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(false);
+                }
+                if (mMetricsActive) {
+                    //归位可能在下面的分发过程中就结束了，先记下抬起的时间
+                    mMetricsUpTime = ev.getEventTime();
+                }
+                if (mIsOpenWhenTouchDown && mConfig.isCloseOnClick()) {
                     close();
                 }
                 break;
@@ -311,7 +748,21 @@ public class SlideWrapper extends RelativeLayout {
         if (mScrollable == -1 ) {
             mScrollable = clacScrollableDistance();
         }
-        return super.dispatchTouchEvent(ev);
+        boolean handled = super.dispatchTouchEvent(ev);
+        int action = ev.getAction();
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            if (mHorizontalDrag) {
+                if (NESTED_SCROLL) stopNestedScroll();
+            } else {
+                //没有侧滑，手势到这里就结束了
+                finishGestureMetrics();
+            }
+            if (mVelocityTracker != null) {
+                mVelocityTracker.recycle();
+                mVelocityTracker = null;
+            }
+        }
+        return handled;
     }
 
     @Override
@@ -321,401 +772,839 @@ public class SlideWrapper extends RelativeLayout {
             mIsOpenWhenTouchDown = true;
             return false;
         }
-        switch (ev.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                mXDown = ev.getRawX();
-                mXLastMove = mXDown;
-                break;
-            case MotionEvent.ACTION_MOVE:
-                mXMove = ev.getRawX();
-                mXLastMove = mXMove;
-                return true;
-
+        if (ev.getAction() == MotionEvent.ACTION_MOVE && mHorizontalDrag) {
+            //只在确定是横向滑动后才拦截，纵向滑动的事件继续交给子view和父控件
+            mGesture.resetLastMove(ev.getRawX());
+            return true;
         }
         return super.onInterceptTouchEvent(ev);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        resolveChildren();
         if (mWrappedView == null) {
-            mWrappedView = findContentView();
-            if (mWrappedView == null) {
-                return false;
-            }
+            return false;
         }
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                mDownTime = System.currentTimeMillis();
                 return true;
             case MotionEvent.ACTION_MOVE:
-
-                mXMove = event.getRawX();
-                int scrolledX = Math.round(mXMove - mXLastMove);
-                if (mMode.equals(MODE_DYNAMIC)) {
-                    //动态模式的滑动事件处理
-                    handleDynaimcMoveEvent(scrolledX);
-                } else {
-                    //静态模式的滑动事件处理
-                    handleStaticMoveEvent(scrolledX);
+                if (!mHorizontalDrag) {
+                    //还没确定方向或者是纵向滑动
+                    return true;
+                }
+                //速度由VelocityTracker根据包括历史采样在内的所有点计算，这里只累加位移，每帧应用一次
+                float dx = mGesture.consumeMove(event.getRawX());
+                //先让支持嵌套滑动的横向父控件消费
+                int scrollDx = -Math.round(dx);
+                if (scrollDx != 0 && NESTED_SCROLL) {
+                    if (mNestedConsumed == null) mNestedConsumed = new int[2];
+                    if (dispatchNestedPreScroll(scrollDx, 0, mNestedConsumed, null)) {
+                        dx += mNestedConsumed[0];
+                    }
                 }
-                mXLastMove = mXMove;
+                dragBy(dx);
                 return true;
             case MotionEvent.ACTION_UP:
-                mUpTime = System.currentTimeMillis();
-                if (mUpTime - mDownTime <= CLICK_INTERVAL &&
-                    (Math.abs(event.getX() - mX) < CLICK_DISTANCE  &&
-                     Math.abs(event.getY() - mY) < CLICK_DISTANCE) && !doNotPerformClick) {
-                    Log.e(TAG, "clicked");
+                endDrag();
+                boolean isClick = mGesture.isClick(event.getX(), event.getY(), event.getEventTime());
+                if (isClick && mIsOpenWhenTouchDown && mConfig.getActionCount() > 0) {
+                    //展开状态下点击了画出来的按钮，按x坐标判断点中了哪一个
+                    int index = findActionAt(event.getX());
+                    if (index >= 0) {
+                        if (mActionClickListener != null) {
+                            mActionClickListener.onActionClick(this, index);
+                        }
+                        return true;
+                    }
+                }
+                if (isClick && !mGesture.isClickSuppressed()) {
                     performClick();
                     return true;
                 }
-                //抬起的时候做个动画
-                doAnimation();
+                //抬起的时候根据位置和速度做个动画
+                doAnimation(getReleaseVelocity());
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                endDrag();
+                doAnimation(0);
                 return true;
         }
         return super.onTouchEvent(event);
     }
 
     @Override
-    public void computeScroll() {
-        if (mScroller == null) return;
-        if (mScroller.computeScrollOffset()) {
-            scrollTo(mScroller.getCurrX(), 0);
-            invalidate();
-        } else {
-            callback();
+    protected void dispatchDraw(Canvas canvas) {
+        //完全关闭时侧滑部分完全被遮住（静态模式）或在屏幕外（动态模式），不画
+        boolean revealed = getXOffset() > 0;
+        if (revealed && mConfig.getActionCount() > 0 && !mConfig.isDynamic()) {
+            //静态模式，按钮在被包装的view下面，只画露出来的部分
+            int save = canvas.save();
+            int edge = revealEdge();
+            canvas.clipRect(edge - getXOffset(), contentTop(), edge, contentBottom());
+            drawActions(canvas);
+            canvas.restoreToCount(save);
+        }
+        super.dispatchDraw(canvas);
+        if (revealed && mConfig.getActionCount() > 0 && mConfig.isDynamic()) {
+            drawActions(canvas);
+        }
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child == mWrappedView) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        //侧滑view：关闭时不画；静态模式下压在被包装的view下面，只画露出来的那一条
+        int offset = getXOffset();
+        if (offset <= 0) {
+            return false;
+        }
+        if (mConfig.isDynamic()) {
+            return super.drawChild(canvas, child, drawingTime);
         }
+        int save = canvas.save();
+        int edge = revealEdge();
+        canvas.clipRect(edge - offset, contentTop(), edge, contentBottom());
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(save);
+        return more;
+    }
+
+    //画出配置中的按钮：静态模式贴着右边，动态模式接在内容右边随内容一起滚动
+    private void drawActions(Canvas canvas) {
+        int edge = revealEdge();
+        float left = mConfig.isDynamic() ? edge : edge - mConfig.getScrollablePx();
+        mConfig.drawActions(canvas, left, contentTop(), contentBottom());
+    }
+
+    //x为wrapper坐标系下的坐标，返回点中的按钮序号，没点中返回-1
+    private int findActionAt(float x) {
+        int edge = revealEdge();
+        int left = mConfig.isDynamic() ? edge - getScrollX() : edge - mConfig.getScrollablePx();
+        return mConfig.findActionAt(x, left);
     }
 
     //是否是展开状态
     public boolean isOpen() {
-        return getXOffset() >= mScrollable;
+        if (mScrollable == -1) {
+            //几何信息失效后还没重新计算
+            mScrollable = clacScrollableDistance();
+        }
+        return mScrollable > 0 && getXOffset() >= mScrollable;
+    }
+
+    //如果是关闭的，展开
+    public void open() {
+        if (mScrollable == -1) {
+            mScrollable = clacScrollableDistance();
+        }
+        if (mScrollable <= 0 || isOpen()) return;
+        resolveChildren();
+        if (!mConfig.isDynamic() && mWrappedView == null) return;
+        ensureControlViews();
+        if (mCoordinator != null) {
+            mCoordinator.onSlideStart(this);
+        }
+        //可能正在关闭或拉回，改为展开后只通知展开
+        mNotifyCompleteClose = false;
+        mNotifyPullback = false;
+        mNotifyCompleteOpen = true;
+        animateTo(mScrollable);
+    }
+
+    //不管是完全展开、拖到一半还是正在展开，都关闭（协调器使用）
+    void collapse() {
+        if (mGesture.isDragging()) {
+            endDrag();
+        }
+        mNotifyCompleteOpen = false;
+        mNotifyPullback = false;
+        if (getXOffset() <= 0) {
+            cancelSettle();
+            dropLayers();
+            if (mCoordinator != null) {
+                mCoordinator.onClosed(this);
+            }
+            return;
+        }
+        mNotifyCompleteClose = true;
+        animateTo(0);
     }
 
     //如果是展开的，关闭掉
     public void close() {
         if (isOpen()) {
             mNotifyCompleteClose = true;
-            if (mMode.equals(MODE_DYNAMIC)) {
-                int dx = -mScrollable;
-                dynamicAnimation(dx);
-            } else {
-                staticAnimation(mWrappedView.getTranslationX(), 0.0f);
-            }
+            animateTo(0);
         }
     }
 
-    //查找被包装的view
-    private View findContentView() {
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mChildrenDirty = true;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mChildrenDirty = true;
+    }
+
+    //解析子view的角色：第一个非侧滑view是被包装的view，其余标记的是侧滑view。
+    //结果缓存起来，只在增删子view或设置ViewFactory后重新解析，测量布局时不再扫描tag
+    private void resolveChildren() {
+        if (!mChildrenDirty) return;
+        mChildrenDirty = false;
+        mWrappedView = null;
+        mControlView.clear();
         int children = getChildCount();
         for (int i = 0; i < children; i++) {
             View child = getChildAt(i);
-            if (child != null) {
-                Object tag = child.getTag();
-                if ( tag == null ||(tag != null && (!(tag instanceof String) || !("ctrl".equals(tag)))) ) {
-                    return child;
-                }
+            if (child == null) continue;
+            if (isControlView(child)) {
+                mControlView.add(child);
+            } else if (mWrappedView == null) {
+                mWrappedView = child;
             }
         }
-        return null;
     }
 
-    //查找ctrl view
-    private List<View> findControlView() {
-        List<View> ctrlView = new ArrayList<>();
-        int children = getChildCount();
-        for (int i = 0; i < children; i++) {
-            View child = getChildAt(i);
-            if (child != null) {
-                Object tag = child.getTag();
-                if (tag != null && "ctrl".equals(tag)) {
-                    ctrlView.add(child);
-                }
-            }
+    private static boolean isControlView(View child) {
+        ViewGroup.LayoutParams lp = child.getLayoutParams();
+        if (lp instanceof LayoutParams && ((LayoutParams) lp).role != LayoutParams.ROLE_AUTO) {
+            return ((LayoutParams) lp).role == LayoutParams.ROLE_CONTROL;
         }
-        return ctrlView;
+        return "ctrl".equals(child.getTag());
     }
 
     //计算可滚动的距离
     private int clacScrollableDistance() {
         //1.优先检查用户动态设定的可滚动值
+        int[] widthPx = resolveControlWidths();
         int dis = 0;
-        if (mIsFromFactory) {
-            List<Integer> width = mFactory.getWidthDp();
-            if (width != null && width.size() > 0) {
-                for (int w : width) {
-                    dis += dip2px(getContext(), w);
-                }
-                return dis;
+        if (widthPx.length > 0) {
+            for (int i = 0; i < widthPx.length; i++) {
+                dis += widthPx[i];
             }
+            return dis;
         }
         //2.用户没有指定，则自动计算
-        if (mControlView != null) {
-            for (View v : mControlView) {
-                dis += v.getMeasuredWidth();
-            }
+        resolveChildren();
+        for (int i = 0; i < mControlView.size(); i++) {
+            dis += mControlView.get(i).getMeasuredWidth();
         }
         return dis;
     }
 
-    private void init(AttributeSet attr) {
-        if (attr != null) {
-            TypedArray a = getContext().obtainStyledAttributes(attr, R.styleable.SlideWrapper);
-            mMode = a.getString(R.styleable.SlideWrapper_mode);
-            mCloseOnClick = a.getBoolean(R.styleable.SlideWrapper_close_onclick, true);
-            mAnimationDurationMs = a.getInt(R.styleable.SlideWrapper_anim_duration, ANIMATION_DURATION);
-            if (mMode.equals(MODE_DYNAMIC)) {
-                mScroller = new Scroller(getContext());
+    //把配置或者ViewFactory中指定的宽度换算成px并缓存，只在配置、factory或者屏幕密度变化时重新计算，
+    //返回的数组长度为0表示没有指定宽度，需要用测量出的宽度
+    private int[] resolveControlWidths() {
+        float density = getResources().getDisplayMetrics().density;
+        if (mControlWidthPx != null && density == mWidthDensity) {
+            return mControlWidthPx;
+        }
+        mWidthDensity = density;
+        if (mConfig.getControlCount() > 0) {
+            //配置中已经换算好的宽度优先
+            int[] w = new int[mConfig.getControlCount()];
+            for (int i = 0; i < w.length; i++) {
+                w[i] = mConfig.getControlWidthPx(i);
             }
-            a.recycle();
+            mControlWidthPx = w;
+        } else if (mIsFromFactory && mFactory.getWidthDp() != null) {
+            List<Integer> widthDp = mFactory.getWidthDp();
+            int[] w = new int[widthDp.size()];
+            for (int i = 0; i < w.length; i++) {
+                w[i] = (int) (widthDp.get(i) * density + 0.5f);
+            }
+            mControlWidthPx = w;
+        } else {
+            mControlWidthPx = NO_WIDTH;
         }
-        mCallback = new CallbackWrpper(null);
+        return mControlWidthPx;
     }
 
-    private void scroll(int xoffset) {
-        if (mMode.equals(MODE_STATIC)) {
-            //静态的时候滚动view自己
-            if (mWrappedView != null) {
-                mWrappedView.setTranslationX(xoffset);
-            }
+    //宽度需要重新解析
+    private void invalidateControlWidths() {
+        mControlWidthPx = null;
+        mScrollable = -1;
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        invalidateControlWidths();
+        updateGestureThresholds();
+    }
+
+    //touch slop和fling速度都和屏幕密度有关
+    private void updateGestureThresholds() {
+        int slop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        float fling = SlideGestureEngine.FLING_VELOCITY_DP * getResources().getDisplayMetrics().density;
+        if (mGesture == null) {
+            mGesture = new SlideGestureEngine(slop, fling);
         } else {
-            //动态的时候滚动内容
-            scrollBy(xoffset, 0);
+            mGesture.setThresholds(slop, fling);
         }
     }
 
-    //复位，滚回原处
-    private void reset() {
-        if (mMode.equals(MODE_STATIC)) {
-            //
-        } else {
-            scrollTo(0, 0);
+    private void init(AttributeSet attr) {
+        if (NESTED_SCROLL) {
+            setNestedScrollingEnabled(true);
+        }
+        updateGestureThresholds();
+        if (attr != null) {
+            TypedArray a = getContext().obtainStyledAttributes(attr, R.styleable.SlideWrapper);
+            int mode = SlideConfig.parseMode(a.getString(R.styleable.SlideWrapper_mode));
+            boolean closeOnClick = a.getBoolean(R.styleable.SlideWrapper_close_onclick, true);
+            int duration = a.getInt(R.styleable.SlideWrapper_anim_duration, SlideConfig.DEFAULT_DURATION);
+            //相同参数的wrapper共享同一个配置对象
+            mConfig = SlideConfig.obtain(mode, duration, closeOnClick);
+            a.recycle();
         }
     }
 
-    private int getXOffset() {
-        int scrollX = mMode.equals(MODE_DYNAMIC) ? getScrollX() : (int)mWrappedView.getTranslationX();
+    int getXOffset() {
+        resolveChildren();
+        if (!mConfig.isDynamic() && mWrappedView == null) return 0;
+        int scrollX = mConfig.isDynamic() ? getScrollX() : (int)mWrappedView.getTranslationX();
         return Math.abs(scrollX);
     }
 
-    //做动画
-    private void doAnimation() {
-        int scrollX = mMode.equals(MODE_DYNAMIC) ? getScrollX() : (int)mWrappedView.getTranslationX();
-        scrollX = Math.abs(scrollX);
-        if (scrollX <= 0 || scrollX >= mScrollable) return;
-        int dx = 0;
-        boolean close = true;
-        if (scrollX < mScrollable / 3) {
-            //小于1/3的时候就回滚
-            dx = -scrollX;
-            mNotifyPullback = mNotifyCompleteClose ? false : true;
-        } else {
-            //大于1/3就展开
-            mNotifyCompleteOpen = true;
-            close = false;
-            dx = mScrollable - scrollX;
+    //手指抬起时的速度，单位px/s，展开方向（向左）为正；嵌套滑动的父控件消费了fling时返回0
+    private float getReleaseVelocity() {
+        if (mVelocityTracker == null || !mHorizontalDrag) return 0;
+        mVelocityTracker.computeCurrentVelocity(1000,
+                ViewConfiguration.get(getContext()).getScaledMaximumFlingVelocity());
+        float velocity = -mVelocityTracker.getXVelocity();
+        if (!NESTED_SCROLL) return velocity;
+        if (dispatchNestedPreFling(velocity, 0)) {
+            return 0;
         }
-        if (mMode.equals(MODE_STATIC)) {
-            //静态模式，用属性动画来做
-            staticAnimation(mWrappedView.getTranslationX(), close ? 0.0f : -mScrollable);
-        } else {
-            //动态模式，用Scroller来做动画
-            dynamicAnimation(dx);
+        dispatchNestedFling(velocity, 0, true);
+        return velocity;
+    }
+
+    //作为嵌套滑动的父控件：只接受横向的嵌套滑动（比如内容中横向滚动的列表滚到头后继续拖动时展开），
+    //纵向的嵌套滑动和fling一律不参与
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        if ((nestedScrollAxes & SCROLL_AXIS_HORIZONTAL) == 0) return false;
+        if (mScrollable == -1) {
+            mScrollable = clacScrollableDistance();
+        }
+        if (mScrollable <= 0) return false;
+        if (mCoordinator != null) {
+            mCoordinator.onSlideStart(this);
         }
+        return true;
     }
 
-    private void dynamicAnimation(int dx) {
-        mScroller.startScroll(getScrollX(), 0, dx, 0, mAnimationDurationMs);
-        invalidate();
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        if (dxUnconsumed != 0) {
+            ensureControlViews();
+            promoteLayers();
+            dragBy(-dxUnconsumed);
+        }
     }
 
-    private void staticAnimation(float from, final float to) {
-        final ValueAnimator animator = ValueAnimator.ofFloat(from, to);
-        animator.setDuration(mAnimationDurationMs);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                float v = (Float)animator.getAnimatedValue();
-                mWrappedView.setTranslationX(v);
-                if (v == to) {
+    @Override
+    public void onStopNestedScroll(View child) {
+        super.onStopNestedScroll(child);
+        if (mGesture.isDragging()) {
+            endDrag();
+            doAnimation(0);
+        }
+    }
+
+    //做动画：快速滑动时按方向决定展开还是关闭，否则按位置决定，然后用带初速度的弹簧动画归位
+    private void doAnimation(float velocity) {
+        int scrollX = getXOffset();
+        if (scrollX <= 0) {
+            //已经完全回到原位了，不需要动画。按下时不在原位（比如展开后拖回来）要和动画结束时一样通知关闭
+            if (mOffsetAtDown > 0) {
+                mNotifyPullback = !mNotifyCompleteClose;
+                callback();
+                return;
+            }
+            //按下时就在原位，只是拖出去又拖回来，没有状态变化，但拖动开始时已经登记到coordinator并禁用了点击
+            dropLayers();
+            mGesture.setSuppressClick(false);
+            releaseControlViews();
+            if (mCoordinator != null) mCoordinator.onClosed(this);
+            finishGestureMetrics();
+            return;
+        }
+        mGesture.setScrollable(mScrollable);
+        boolean open = mGesture.settleTarget(scrollX, velocity) > 0;
+        if (open) {
+            if (scrollX >= mScrollable) {
+                //正好拖到完全展开，按下时还没有完全展开的话要通知展开
+                if (mOffsetAtDown < mScrollable) {
+                    mNotifyCompleteOpen = true;
+                    mNotifyCompleteClose = false;
                     callback();
+                    return;
                 }
+                dropLayers();
+                finishGestureMetrics();
+                return;
             }
-        });
-        animator.start();
+            mNotifyCompleteOpen = true;
+            mNotifyCompleteClose = false;
+        } else {
+            mNotifyPullback = mNotifyCompleteClose ? false : true;
+        }
+        if (useRenderThreadSettle()) {
+            renderThreadSettle(open ? mScrollable : 0, velocity);
+            return;
+        }
+        promoteLayers();
+        ensureAnimation().startSpring(scrollX, velocity, open ? mScrollable : 0, mConfig.getAnimationDurationMs());
     }
 
-    private void callback() {
-        if (mCallback == null) return;
-        if (mNotifyCompleteOpen) {
-            mCallback.onCompletelyOpen(this);
-            mNotifyCompleteOpen = false;
+    //把侧滑的偏移量（0到mScrollable）应用到view上：静态模式平移被包装的view，动态模式滚动内容
+    private void applyOffset(int offset) {
+        applyOffset(offset, true);
+    }
+
+    //拖动每帧合并成一次，动画每帧一次，所以进度回调每帧最多一次
+    private void applyOffset(int offset, boolean notify) {
+        if (mConfig.isDynamic()) {
+            if (getScrollX() == offset) return;
+            scrollTo(offset, 0);
+        } else if (mWrappedView != null) {
+            int old = Math.round(-mWrappedView.getTranslationX());
+            if (old == offset) return;
+            mWrappedView.setTranslationX(-offset);
+            //侧滑view只画露出来的部分，露出的区域变了需要重画，只重画新旧两次露出区域的并集
+            int right = revealEdge();
+            invalidate(right - Math.max(old, offset), contentTop(), right, contentBottom());
+        } else {
+            return;
         }
-        if (mNotifyPullback) {
-            mCallback.onPullBack(this);
-            mNotifyPullback = false;
+        //滚动和平移都会引起一次重绘
+        mOffsetUpdateCount++;
+        mInvalidateCount++;
+        if (notify && mProgressListener != null) {
+            mProgressListener.onSlide(this, mScrollable > 0 ? Math.min(1f, (float) offset / mScrollable) : 0f, offset);
         }
-        if (mNotifyCompleteClose) {
-            mCallback.onCompleteClosed(this);
-            mNotifyCompleteClose = false;
+    }
+
+    //从当前位置动画到指定偏移量，两种模式都由共用的SlideAnimationDriver按帧推进，结束时回调
+    private void animateTo(int offset) {
+        promoteLayers();
+        if (useRenderThreadSettle()) {
+            renderThreadSettle(offset, 0);
+            return;
+        }
+        SlideAnimation animation = ensureAnimation();
+        if (animation.isSpringRunning()) {
+            //正在弹，保留当前速度直接换目标
+            animation.retarget(offset);
+            return;
         }
+        animation.start(getXOffset(), offset, mConfig.getAnimationDurationMs(),
+                mConfig.isDynamic() ? DYNAMIC_INTERPOLATOR : STATIC_INTERPOLATOR);
     }
 
-    private void handleDynaimcMoveEvent(int scrolledX) {
-        if (scrolledX < 0) {
-            //向左滑动
-            int scrolled = Math.abs(getScrollX());
-            if (scrolled < mScrollable) {
-                if ((scrolled + Math.abs(scrolledX)) >= mScrollable) {
-                    scrolledX = 0;
-                }
-                scroll(-scrolledX);
-            }
-        } else {
-            //向右滑动
-            int scrolled = Math.abs(getScrollX());
-            if (scrolled > 0) {
-                if ((scrolled - scrolledX <= 0)) {
-                    scrolledX = 0;
-                    //这里会有一点偏移，手动滚回原位
-                    reset();
+    private boolean useRenderThreadSettle() {
+        return mConfig.isRenderThreadSettle() && !mConfig.isDynamic() && mWrappedView != null
+                && mProgressListener == null;
+    }
+
+    //静态模式下把归位动画交给ViewPropertyAnimator，不设置监听和额外动作，每帧只改平移属性。
+    //它仍然在主线程逐帧推进，不能躲过主线程卡顿。完成回调用按时长post到主线程的runnable来发，并在那里把位置对齐到终点
+    private void renderThreadSettle(int target, float velocity) {
+        int from = getXOffset();
+        int distance = Math.abs(target - from);
+        long duration = mScrollable > 0 ? (long) mConfig.getAnimationDurationMs() * distance / mScrollable : 0;
+        //朝目标方向的速度，减速插值器的初速度是2*距离/时长，让动画初速度接上手指的速度
+        float towards = target > from ? velocity : -velocity;
+        if (towards > 0) {
+            duration = Math.min(duration, (long) (2000f * distance / towards));
+        }
+        duration = Math.max(duration, MIN_RT_SETTLE_MS);
+        if (mAnimation != null) mAnimation.cancel();
+        if (mRtSettleEnd == null) {
+            mRtSettleEnd = new Runnable() {
+                @Override
+                public void run() {
+                    mRtSettling = false;
+                    if (mWrappedView != null) {
+                        mWrappedView.setTranslationX(-mRtTarget);
+                    }
+                    callback();
                 }
-                scroll(-scrolledX);
+            };
+        }
+        removeCallbacks(mRtSettleEnd);
+        mRtSettling = true;
+        mRtTarget = target;
+        promoteLayers();
+        mWrappedView.animate().setListener(null).translationX(-target).setDuration(duration)
+                .setInterpolator(DYNAMIC_INTERPOLATOR);
+        //动画从下一帧才开始计时，postOnAnimationDelayed最多可能提前一帧执行，多等一帧，避免终点对齐时跳一下
+        postOnAnimationDelayed(mRtSettleEnd, duration + frameIntervalMs());
+    }
+
+    //当前屏幕一帧的时长，单位ms，取不到刷新率时按60Hz
+    private long frameIntervalMs() {
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 0;
+        return refreshRate >= 30 ? (long) Math.ceil(1000 / refreshRate) : DEFAULT_FRAME_INTERVAL_MS;
+    }
+
+    //从确定横向拖动到归位结束，被包装的view和侧滑view使用硬件层，每帧只做合成，不重新执行它们的draw。
+    //只改动原来没有设置layer的view，结束时恢复
+    private void promoteLayers() {
+        if (mLayersPromoted || !isHardwareAccelerated()) return;
+        mLayersPromoted = true;
+        resolveChildren();
+        if (mWrappedView != null && mWrappedView.getLayerType() == LAYER_TYPE_NONE) {
+            mWrappedView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            mPromotedContent = true;
+        }
+        mPromotedControls = 0;
+        for (int i = 0; i < mControlView.size() && i < 32; i++) {
+            View v = mControlView.get(i);
+            if (v.getLayerType() == LAYER_TYPE_NONE) {
+                v.setLayerType(LAYER_TYPE_HARDWARE, null);
+                mPromotedControls |= 1 << i;
             }
         }
     }
 
-    private void handleStaticMoveEvent(int scrolledX) {
-        if (scrolledX < 0) {
-            //向左滑动
-            float xTrans = mWrappedView.getTranslationX();
-            if (Math.abs(xTrans) >= mScrollable) {
-                //不能在滑动了
-            } else {
-                if (Math.abs(xTrans + scrolledX) >= mScrollable) {
-                    scroll(-mScrollable);
-                } else {
-                    scroll(Math.round(xTrans + scrolledX));
-                }
+    private void dropLayers() {
+        if (!mLayersPromoted) return;
+        mLayersPromoted = false;
+        if (mPromotedContent) {
+            mPromotedContent = false;
+            if (mWrappedView != null) {
+                mWrappedView.setLayerType(LAYER_TYPE_NONE, null);
             }
-        } else {
-            //向右滑动
-            float xTrans = mWrappedView.getTranslationX();
-            if (xTrans >= 0) {
-                //不能继续右滑了
-            } else {
-                if (xTrans + scrolledX >= 0) {
-                    scroll(0);
-                } else {
-                    scroll(Math.round(xTrans + scrolledX));
-                }
+        }
+        for (int i = 0; i < mControlView.size() && mPromotedControls != 0; i++) {
+            if ((mPromotedControls & (1 << i)) != 0) {
+                mControlView.get(i).setLayerType(LAYER_TYPE_NONE, null);
+                mPromotedControls &= ~(1 << i);
             }
         }
+        mPromotedControls = 0;
     }
 
-    private static int dip2px(Context context, float dipValue) {
-        final float scale = context.getResources().getDisplayMetrics().density;
-        return (int) (dipValue * scale + 0.5f);
+    //是否正在做归位动画
+    boolean isSettling() {
+        return mRtSettling || (mAnimation != null && mAnimation.isRunning());
     }
 
-    private void enableControlView(boolean enable) {
-        if (mEnable != enable) {
-            mEnable = enable;
-            if (mControlView != null && mMode.equals(MODE_STATIC)) {
-                for (View v : mControlView) {
-                    v.setEnabled(enable);
-                }
+    //停在当前位置，不回调
+    private void cancelSettle() {
+        if (mAnimation != null) {
+            mAnimation.cancel();
+        }
+        if (mRtSettling) {
+            mRtSettling = false;
+            removeCallbacks(mRtSettleEnd);
+            if (mWrappedView != null) {
+                mWrappedView.animate().cancel();
             }
         }
     }
 
-    private Runnable mLongPressRunnable = new Runnable() {
-        @Override
-        public void run() {
-            performLongClick();
+    //如果正在做归位动画，直接跳到终点并回调
+    private void finishSettle() {
+        int target;
+        if (mRtSettling) {
+            target = mRtTarget;
+        } else if (mAnimation != null && mAnimation.isRunning()) {
+            target = mAnimation.getTarget();
+        } else {
+            return;
         }
-    };
+        cancelSettle();
+        applyOffset(target);
+        callback();
+    }
 
-    private class CallbackWrpper implements Callback {
+    private SlideAnimation ensureAnimation() {
+        if (mAnimation == null) {
+            mAnimation = new SlideAnimation() {
+                @Override
+                void onUpdate(int value) {
+                    applyOffset(value);
+                }
 
-        CallbackWrpper(Callback raw) {
-            mRaw = raw;
+                @Override
+                void onEnd() {
+                    callback();
+                }
+            };
         }
+        return mAnimation;
+    }
 
-        @Override
-        public void onCompletelyOpen(SlideWrapper wrapper) {
+    private void callback() {
+        dropLayers();
+        saveState();
+        if (mMetricsActive && mMetricsUpTime >= 0
+                && (mNotifyCompleteOpen || mNotifyPullback || mNotifyCompleteClose)) {
+            mMetrics.record(SlideMetrics.METRIC_SETTLE_MS, (int) (SystemClock.uptimeMillis() - mMetricsUpTime));
+        }
+        finishGestureMetrics();
+        if (mNotifyCompleteOpen) {
+            mNotifyCompleteOpen = false;
             //打开时，如果是静态模式，把侧滑view使能使之可以响应点击事件
-            doNotPerformClick = true;
+            mGesture.setSuppressClick(true);
             enableControlView(true);
-            if (mRaw != null) {
-                mRaw.onCompletelyOpen(wrapper);
-            }
+            if (mCoordinator != null) mCoordinator.onOpened(this);
+            if (mCallback != null) mCallback.onCompletelyOpen(this);
         }
-
-        @Override
-        public void onCompleteClosed(SlideWrapper wrapper) {
+        if (mNotifyPullback) {
+            mNotifyPullback = false;
+            mGesture.setSuppressClick(false);
+            releaseControlViews();
+            if (mCoordinator != null) mCoordinator.onClosed(this);
+            if (mCallback != null) mCallback.onPullBack(this);
+        }
+        if (mNotifyCompleteClose) {
+            mNotifyCompleteClose = false;
             //关闭时，如果是静态模式，把侧滑view禁用不让它响应点击事件
-            doNotPerformClick = false;
+            mGesture.setSuppressClick(false);
             enableControlView(false);
-            if (mRaw != null) {
-                mRaw.onCompleteClosed(wrapper);
+            releaseControlViews();
+            if (mCoordinator != null) mCoordinator.onClosed(this);
+            if (mCallback != null) mCallback.onCompleteClosed(this);
+        }
+    }
+
+    //累加手指的位移，不立即滚动，同一帧内的多个MOVE只在下一次帧回调中应用一次
+    private void dragBy(float dx) {
+        //手指向左是展开方向，限制在0到mScrollable之间
+        mGesture.setScrollable(mScrollable);
+        mGesture.dragBy(dx, getXOffset());
+        if (!mDragPending) {
+            mDragPending = true;
+            if (mDragFrame == null) {
+                mDragFrame = new SlideAnimationDriver.Target() {
+                    @Override
+                    public boolean doAnimationFrame(long frameTimeNanos) {
+                        flushDrag();
+                        return false;
+                    }
+                };
             }
+            SlideAnimationDriver.getInstance().start(mDragFrame);
         }
+    }
 
-        @Override
-        public void onPullBack(SlideWrapper wrapper) {
-            doNotPerformClick = false;
-            if (mRaw != null) {
-                mRaw.onPullBack(wrapper);
+    //把累加的拖动位移应用到view上
+    private void flushDrag() {
+        if (!mDragPending) return;
+        mDragPending = false;
+        applyOffset(Math.round(mGesture.getDragOffset()));
+    }
+
+    //手指抬起：还没应用的位移立即应用，结束这次拖动
+    private void endDrag() {
+        if (mDragPending) {
+            SlideAnimationDriver.getInstance().cancel(mDragFrame);
+            flushDrag();
+        }
+        mGesture.endDrag();
+        saveState();
+    }
+
+    //按下时开始统计一次手势，上一次手势还没归位完就被按住时，先把它结束
+    private void beginGestureMetrics() {
+        finishGestureMetrics();
+        mMetricsActive = true;
+        mMetricsUpTime = -1;
+        mMeasureStart = mMeasureCount;
+        mLayoutStart = mLayoutCount;
+        mOffsetUpdateStart = mOffsetUpdateCount;
+        mInvalidateStart = mInvalidateCount;
+    }
+
+    //手势结束（没有侧滑时抬起，或者归位结束）时记录这次手势的计数
+    private void finishGestureMetrics() {
+        if (!mMetricsActive) return;
+        mMetricsActive = false;
+        if (mMetrics == null) return;
+        mMetrics.record(SlideMetrics.METRIC_MEASURES, mMeasureCount - mMeasureStart);
+        mMetrics.record(SlideMetrics.METRIC_LAYOUTS, mLayoutCount - mLayoutStart);
+        mMetrics.record(SlideMetrics.METRIC_OFFSET_UPDATES, mOffsetUpdateCount - mOffsetUpdateStart);
+        mMetrics.record(SlideMetrics.METRIC_INVALIDATIONS, mInvalidateCount - mInvalidateStart);
+    }
+
+    //累计的重绘请求次数，给SlideTouchReplayer统计回放期间的重绘
+    int getInvalidateCount() {
+        return mInvalidateCount;
+    }
+
+    //由OpenStateStore调用：先保存当前id的状态，再绑定新id并直接恢复它的偏移量
+    void bindState(OpenStateStore store, long id, int offset) {
+        saveState();
+        mStateStore = store;
+        mStateId = id;
+        jumpToOffset(offset);
+    }
+
+    //把当前的偏移量记到绑定的id下
+    private void saveState() {
+        if (mStateStore != null) {
+            //还没布局时偏移量还没应用到view上，保存等待应用的值
+            mStateStore.put(mStateId, mPendingOffset >= 0 ? mPendingOffset : getXOffset());
+        }
+    }
+
+    //直接把偏移量设到指定值：没有动画，不触发布局，不回调Callback。
+    //还没测量、不知道可滑动距离时先记下来，布局时再设置
+    private void jumpToOffset(int offset) {
+        cancelSettle();
+        if (mDragPending) {
+            SlideAnimationDriver.getInstance().cancel(mDragFrame);
+            mDragPending = false;
+        }
+        mGesture.endDrag();
+        mNotifyCompleteOpen = false;
+        mNotifyCompleteClose = false;
+        mNotifyPullback = false;
+        resolveChildren();
+        if (mScrollable == -1) {
+            mScrollable = clacScrollableDistance();
+        }
+        if (offset > 0 && mScrollable <= 0) {
+            mPendingOffset = offset;
+            return;
+        }
+        mPendingOffset = -1;
+        offset = Math.max(0, Math.min(offset, mScrollable));
+        if (offset > 0) {
+            ensureControlViews();
+        }
+        //恢复状态不算侧滑，不回调进度
+        applyOffset(offset, false);
+        dropLayers();
+        boolean open = offset > 0 && offset >= mScrollable;
+        mGesture.setSuppressClick(open);
+        enableControlView(open);
+        if (offset == 0) {
+            releaseControlViews();
+        }
+        if (mCoordinator != null) {
+            if (offset > 0) {
+                mCoordinator.onOpened(this);
+            } else {
+                mCoordinator.onClosed(this);
             }
         }
+    }
 
-        Callback mRaw;
+    private static int dip2px(Context context, float dipValue) {
+        final float scale = context.getResources().getDisplayMetrics().density;
+        return (int) (dipValue * scale + 0.5f);
     }
 
-    private float mXDown, mYDown;
-    private float mXMove;
-    private float mXLastMove;
+    private void enableControlView(boolean enable) {
+        if (mEnable != enable) {
+            mEnable = enable;
+            if (!mConfig.isDynamic()) {
+                for (int i = 0; i < mControlView.size(); i++) {
+                    mControlView.get(i).setEnabled(enable);
+                }
+            }
+        }
+    }
 
-    private List<View> mControlView;
+    private final List<View> mControlView = new ArrayList<>();
     private View mWrappedView;
+    //子view有增删，mControlView和mWrappedView需要重新解析
+    private boolean mChildrenDirty = true;
 
     private int mScrollable = -1;
 
-    private final float TAN60 = 1.73f;
+    //解析好的侧滑view宽度(px)，以及解析时的屏幕密度
+    private int[] mControlWidthPx;
+    private float mWidthDensity;
+    private static final int[] NO_WIDTH = new int[0];
 
-    private ViewFactory mFactory = new EmptyViewFactory();
+    private ViewFactory mFactory;
     private boolean mIsFromFactory = false;
-
-    //是否已经确定了阻止父控件拦截触摸事件，提升效率用的标记，避免频繁在dispatchTouchEvent中做浮点运算
-    private boolean mIsDecided = false;
-
-    private static final int ANIMATION_DURATION = 300;
-
-    private Scroller mScroller;
+    //延迟创建模式下，factory的侧滑view还没有创建
+    private boolean mControlsPending = false;
+    private SlideControlPool mControlPool;
+    //从复用池中取到的侧滑view，关闭时还回去
+    private List<View> mPooledViews;
+
+    //方向判断、拖动限制、点击判断和归位决策，不依赖view
+    private SlideGestureEngine mGesture;
+    //确定为横向滑动，由wrapper处理
+    private boolean mHorizontalDrag = false;
+    private int[] mNestedConsumed;
+
+    //偏移量动画，第一次用到时创建，之后反复使用
+    private SlideAnimation mAnimation;
+    //只在一次触摸过程中持有
+    private VelocityTracker mVelocityTracker;
+    //静态模式交给ViewPropertyAnimator的归位动画
+    private boolean mRtSettling = false;
+    private int mRtTarget;
+    //拖动和归位期间临时设置的硬件层
+    private boolean mLayersPromoted = false;
+    private boolean mPromotedContent = false;
+    private int mPromotedControls = 0;
+    private Runnable mRtSettleEnd;
+    private static final long MIN_RT_SETTLE_MS = 50;
+    private static final long DEFAULT_FRAME_INTERVAL_MS = 17;
+    //View的嵌套滑动接口从API 21开始才有，更早的系统上不参与嵌套滑动
+    private static final boolean NESTED_SCROLL = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+
+    //有还没应用的拖动位移，已经等待下一帧
+    private boolean mDragPending = false;
+    private SlideAnimationDriver.Target mDragFrame;
+    //抬起时横向速度超过该值（dp/s）就按滑动方向展开或关闭
+    //静态模式沿用属性动画默认的插值器，动态模式接近Scroller的减速效果
+    private static final TimeInterpolator STATIC_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    private static final TimeInterpolator DYNAMIC_INTERPOLATOR = new DecelerateInterpolator();
 
     private boolean mNotifyCompleteOpen = false, mNotifyCompleteClose = false,
             mNotifyPullback = false;
+    //按下时的偏移量，抬起时正好停在边界上的话用来判断状态有没有变化
+    private int mOffsetAtDown = 0;
 
     private Callback mCallback;
-
-    private int mAnimationDurationMs = ANIMATION_DURATION;
-    private boolean mCloseOnClick = true;
-    private String mMode = MODE_STATIC;
+    private OnActionClickListener mActionClickListener;
+    private SlideProgressListener mProgressListener;
+    private SlideTouchTrace mTouchTrace;
+    //性能统计，为null时不统计。下面的计数一直累加，开始统计一次手势时记下起始值，结束时记录差值
+    private SlideMetrics mMetrics;
+    private boolean mMetricsActive = false;
+    private long mMetricsUpTime = -1;
+    private int mMeasureCount, mLayoutCount, mOffsetUpdateCount, mInvalidateCount;
+    private int mMeasureStart, mLayoutStart, mOffsetUpdateStart, mInvalidateStart;
+    private SlideCoordinator mCoordinator;
+    //绑定的状态存储和列表项id
+    private OpenStateStore mStateStore;
+    private long mStateId;
+    //等布局后再恢复的偏移量，-1表示没有
+    private int mPendingOffset = -1;
+
+    //模式、动画时长等参数，通常整个列表共享一个
+    private SlideConfig mConfig = SlideConfig.DEFAULT;
+
+    private Runnable mLongPressRunnable;
 
     private boolean mEnable = true;
 
     //按下时是处于展开状态
     private boolean mIsOpenWhenTouchDown = false;
 
-    //以下用于辅助判断长按和点击事件
-    private long mDownTime, mUpTime;
-    //不触发点击、长按（在展开状态下点击时不触发）
-    private boolean doNotPerformClick = false;
-    private float mX, mY;
-    private boolean mIsMoved = false;
-    private final int CLICK_INTERVAL = 300;
-    private final int CLICK_DISTANCE = 20;
     private final int LONG_CLICK_INTERVAL = ViewConfiguration.getLongPressTimeout();
 }
 
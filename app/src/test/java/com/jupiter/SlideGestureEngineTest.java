@@ -0,0 +1,126 @@
+package com.jupiter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SlideGestureEngine的单元测试，不依赖Android框架，可以直接在JVM上运行
+ */
+public class SlideGestureEngineTest {
+
+    private static final int TOUCH_SLOP = 8;
+    private static final float FLING_VELOCITY = 1000;
+    private static final int SCROLLABLE = 300;
+    private static final float DELTA = 0.001f;
+
+    private SlideGestureEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SlideGestureEngine(TOUCH_SLOP, FLING_VELOCITY);
+        mEngine.setScrollable(SCROLLABLE);
+        mEngine.onDown(100, 100, 100, 0);
+    }
+
+    @Test
+    public void moveWithinSlopDecidesNothing() {
+        assertEquals(SlideGestureEngine.DECISION_NONE, mEngine.onMove(100 + TOUCH_SLOP, 100 - TOUCH_SLOP));
+        assertEquals(SlideGestureEngine.DECISION_NONE, mEngine.getDecision());
+        assertTrue(mEngine.isLongPressValid());
+    }
+
+    @Test
+    public void horizontalMoveSuppressesClick() {
+        assertEquals(SlideGestureEngine.DECISION_HORIZONTAL, mEngine.onMove(70, 105));
+        assertTrue(mEngine.isHorizontal());
+        assertTrue(mEngine.isClickSuppressed());
+        assertFalse(mEngine.isLongPressValid());
+    }
+
+    @Test
+    public void verticalMoveKeepsClick() {
+        assertEquals(SlideGestureEngine.DECISION_VERTICAL, mEngine.onMove(110, 130));
+        assertFalse(mEngine.isHorizontal());
+        assertFalse(mEngine.isClickSuppressed());
+    }
+
+    @Test
+    public void moveBelowSixtyDegreesIsVertical() {
+        //横向位移没有超过纵向的tan60倍
+        assertEquals(SlideGestureEngine.DECISION_VERTICAL, mEngine.onMove(120, 115));
+    }
+
+    @Test
+    public void directionIsDecidedOnce() {
+        assertEquals(SlideGestureEngine.DECISION_VERTICAL, mEngine.onMove(100, 130));
+        assertEquals(SlideGestureEngine.DECISION_NONE, mEngine.onMove(0, 130));
+        assertEquals(SlideGestureEngine.DECISION_VERTICAL, mEngine.getDecision());
+    }
+
+    @Test
+    public void downResetsDecision() {
+        mEngine.onMove(50, 100);
+        mEngine.onDown(100, 100, 100, 1000);
+        assertEquals(SlideGestureEngine.DECISION_NONE, mEngine.getDecision());
+        assertFalse(mEngine.isDragging());
+    }
+
+    @Test
+    public void dragClampsToZero() {
+        //手指向右不能超过原位
+        assertEquals(0, mEngine.dragBy(50, 0), DELTA);
+    }
+
+    @Test
+    public void dragClampsToScrollable() {
+        assertEquals(100, mEngine.dragBy(-100, 0), DELTA);
+        assertEquals(SCROLLABLE, mEngine.dragBy(-500, 0), DELTA);
+        assertEquals(SCROLLABLE - 20, mEngine.dragBy(20, 0), DELTA);
+    }
+
+    @Test
+    public void dragStartsFromCurrentOffsetOnce() {
+        assertEquals(130, mEngine.dragBy(-10, 120), DELTA);
+        //拖动过程中忽略传入的偏移量，保留小数部分
+        assertEquals(130.5f, mEngine.dragBy(-0.5f, 0), DELTA);
+        assertTrue(mEngine.isDragging());
+        mEngine.endDrag();
+        assertEquals(60, mEngine.dragBy(-10, 50), DELTA);
+    }
+
+    @Test
+    public void settleAtZeroStaysClosed() {
+        assertEquals(0, mEngine.settleTarget(0, FLING_VELOCITY * 2));
+    }
+
+    @Test
+    public void flingDecidesByDirection() {
+        assertEquals(SCROLLABLE, mEngine.settleTarget(10, FLING_VELOCITY));
+        assertEquals(0, mEngine.settleTarget(SCROLLABLE - 10, -FLING_VELOCITY));
+    }
+
+    @Test
+    public void slowReleaseUsesOneThird() {
+        assertEquals(SCROLLABLE, mEngine.settleTarget(SCROLLABLE / 3, FLING_VELOCITY - 1));
+        assertEquals(0, mEngine.settleTarget(SCROLLABLE / 3 - 1, FLING_VELOCITY - 1));
+        assertEquals(0, mEngine.settleTarget(SCROLLABLE / 3 - 1, -(FLING_VELOCITY - 1)));
+    }
+
+    @Test
+    public void clickWithinIntervalAndDistance() {
+        assertTrue(mEngine.isClick(110, 90, SlideGestureEngine.CLICK_INTERVAL));
+        assertFalse(mEngine.isClick(110, 90, SlideGestureEngine.CLICK_INTERVAL + 1));
+        assertFalse(mEngine.isClick(100 + SlideGestureEngine.CLICK_DISTANCE, 100, 10));
+    }
+
+    @Test
+    public void consumeMoveReturnsDeltaSinceLastMove() {
+        assertEquals(-15, mEngine.consumeMove(85), DELTA);
+        mEngine.resetLastMove(200);
+        assertEquals(5, mEngine.consumeMove(205), DELTA);
+    }
+}
@@ -0,0 +1,324 @@
+package com.jupiter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * 大量SlideWrapper行的压力测试，在JVM上用Robolectric运行：
+ * 5000行的RecyclerView，静态、动态两种模式，xml中用tag声明的侧滑view和TextViewFactory两种侧滑view，
+ * 反复滚动、侧滑展开、关闭，检查内存分配、测量次数、每行的常驻内存以及动画是否都已结束。
+ * 预算按Robolectric的开销留了余量，用来发现数量级上的退化（比如每帧分配对象、拖动时重新布局），不是精确的性能数据
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlideStressTest {
+
+    private static final int ROWS = 5000;
+    private static final int LIST_WIDTH_PX = 480;
+    private static final int LIST_HEIGHT_PX = 800;
+    private static final int ROW_HEIGHT_PX = 60;
+    private static final int CONTROL_WIDTH_PX = 80;
+    private static final int SWIPE_CYCLES = 20;
+    private static final int WARM_UP_CYCLES = 2;
+    private static final long FRAME_MS = 16;
+    private static final int MAX_SETTLE_FRAMES = 120;
+
+    //预算
+    //滚动时每个新绑定的行最多测量两次（RecyclerView自己可能测量两遍）
+    private static final int MAX_MEASURES_PER_BOUND_ROW = 2;
+    //一次侧滑展开加关闭最多让wrapper测量一次，拖动和动画本身不应该触发布局
+    private static final int MAX_MEASURES_PER_SWIPE = 1;
+    //RecyclerView只为可见行和缓存创建行，和总行数无关
+    private static final int MAX_CREATED_ROWS = 64;
+    //使用复用池时，整个测试创建的侧滑view组数不超过池的上限
+    private static final int MAX_FACTORY_SETS = 4;
+    //一次展开加关闭（包括Robolectric分发触摸事件和帧回调本身的开销）分配的内存
+    private static final long MAX_ALLOC_BYTES_PER_SWIPE = 512 * 1024;
+    //滚动经过的每一行在滚动结束后留下的内存
+    private static final long MAX_RETAINED_BYTES_PER_ROW = 1024;
+
+    private Activity mActivity;
+    private RecyclerView mList;
+    private RowAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void staticModeWithXmlControls() {
+        runScenario(SlideConfig.MODE_STATIC, false);
+    }
+
+    @Test
+    public void staticModeWithFactoryControls() {
+        runScenario(SlideConfig.MODE_STATIC, true);
+    }
+
+    @Test
+    public void dynamicModeWithXmlControls() {
+        runScenario(SlideConfig.MODE_DYNAMIC, false);
+    }
+
+    @Test
+    public void dynamicModeWithFactoryControls() {
+        runScenario(SlideConfig.MODE_DYNAMIC, true);
+    }
+
+    private void runScenario(int mode, boolean factoryControls) {
+        SlideConfig config = new SlideConfig.Builder(mActivity).mode(mode).lazyControls(factoryControls).build();
+        CountingFactory factory = factoryControls ? new CountingFactory() : null;
+        SlideCoordinator coordinator = new SlideCoordinator();
+        mAdapter = new RowAdapter(config, factory, factoryControls ? new SlideControlPool() : null, coordinator);
+        mList = new RecyclerView(mActivity);
+        mList.setLayoutManager(new LinearLayoutManager(mActivity));
+        mList.setAdapter(mAdapter);
+        mActivity.setContentView(mList, new ViewGroup.LayoutParams(LIST_WIDTH_PX, LIST_HEIGHT_PX));
+        coordinator.attach(mList);
+        layoutList();
+
+        //1.从头滚到尾再滚回来，第一遍预热，第二遍统计测量次数和留下的内存
+        scrollThrough(1);
+        scrollThrough(-1);
+        long heapBefore = usedHeapAfterGc();
+        CountingWrapper.sMeasures = 0;
+        mAdapter.mBound = 0;
+        scrollThrough(1);
+        long retained = usedHeapAfterGc() - heapBefore;
+        int bound = mAdapter.mBound;
+        assertTrue("no rows were bound while scrolling", bound > 0);
+        assertTrue("measures while scrolling: " + CountingWrapper.sMeasures + " for " + bound + " rows",
+                CountingWrapper.sMeasures <= bound * MAX_MEASURES_PER_BOUND_ROW);
+        assertTrue("retained " + retained + " bytes after binding " + bound + " rows",
+                retained <= bound * MAX_RETAINED_BYTES_PER_ROW);
+        assertTrue("created " + mAdapter.mCreated + " rows for " + ROWS,
+                mAdapter.mCreated <= MAX_CREATED_ROWS);
+
+        //2.滚动、侧滑展开、关闭，反复多次
+        scrollBy(-LIST_HEIGHT_PX * 4);
+        long allocStart = 0;
+        for (int cycle = 0; cycle < SWIPE_CYCLES; cycle++) {
+            if (cycle == WARM_UP_CYCLES) {
+                allocStart = threadAllocatedBytes();
+            }
+            scrollBy(ROW_HEIGHT_PX * 7);
+            SlideWrapper row = (SlideWrapper) mList.getChildAt(2);
+            CountingWrapper.sMeasures = 0;
+
+            swipeOpen(row);
+            awaitSettled();
+            assertTrue("row not open after swipe, cycle " + cycle, row.isOpen());
+            assertEquals(row, coordinator.getOpenWrapper());
+
+            row.close();
+            awaitSettled();
+            assertFalse("row still open after close, cycle " + cycle, row.isOpen());
+            assertEquals(0, row.getXOffset());
+            assertEquals(null, coordinator.getOpenWrapper());
+            assertTrue("measures in swipe cycle " + cycle + ": " + CountingWrapper.sMeasures,
+                    CountingWrapper.sMeasures <= MAX_MEASURES_PER_SWIPE);
+        }
+        long allocEnd = threadAllocatedBytes();
+        if (allocStart >= 0 && allocEnd >= 0) {
+            long perSwipe = (allocEnd - allocStart) / (SWIPE_CYCLES - WARM_UP_CYCLES);
+            assertTrue("allocated " + perSwipe + " bytes per swipe cycle", perSwipe <= MAX_ALLOC_BYTES_PER_SWIPE);
+        }
+        if (factory != null) {
+            assertTrue("factory created " + factory.mCreated + " control sets", factory.mCreated <= MAX_FACTORY_SETS);
+        }
+
+        //3.所有行都静止后不应该有动画或拖动留在共用的动画驱动上，关闭的行也不应该持有复用池中的侧滑view
+        assertEquals(0, SlideAnimationDriver.getInstance().getActiveCount());
+        for (int i = 0; i < mList.getChildCount(); i++) {
+            SlideWrapper row = (SlideWrapper) mList.getChildAt(i);
+            assertFalse(row.isSettling());
+            if (factory != null) {
+                assertEquals("closed pooled row still holds control views", 1, row.getChildCount());
+            }
+        }
+        coordinator.detach();
+    }
+
+    private void layoutList() {
+        ShadowLooper.idleMainLooper();
+        mList.measure(View.MeasureSpec.makeMeasureSpec(LIST_WIDTH_PX, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT_PX, View.MeasureSpec.EXACTLY));
+        mList.layout(0, 0, LIST_WIDTH_PX, LIST_HEIGHT_PX);
+    }
+
+    //按半屏的步长滚到底（direction > 0）或者顶
+    private void scrollThrough(int direction) {
+        while (mList.canScrollVertically(direction)) {
+            scrollBy(direction * LIST_HEIGHT_PX / 2);
+        }
+    }
+
+    private void scrollBy(int dy) {
+        mList.scrollBy(0, dy);
+        ShadowLooper.idleMainLooper();
+    }
+
+    //从行的右边向左快速滑过超过侧滑宽度的距离，每个MOVE间隔一帧
+    private void swipeOpen(SlideWrapper row) {
+        float y = row.getTop() + row.getHeight() / 2f;
+        float x = LIST_WIDTH_PX - 10;
+        long downTime = SystemClock.uptimeMillis();
+        dispatch(downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= 10; i++) {
+            ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+            dispatch(downTime, MotionEvent.ACTION_MOVE, x - i * 25, y);
+        }
+        dispatch(downTime, MotionEvent.ACTION_UP, x - 250, y);
+    }
+
+    private void dispatch(long downTime, int action, float x, float y) {
+        MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        mList.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+
+    //一帧一帧推进，直到所有行的动画都结束，超过上限说明动画没有结束（泄漏）
+    private void awaitSettled() {
+        for (int frame = 0; frame < MAX_SETTLE_FRAMES; frame++) {
+            if (SlideAnimationDriver.getInstance().getActiveCount() == 0 && !anySettling()) {
+                return;
+            }
+            ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+        }
+        fail("animations still running after " + MAX_SETTLE_FRAMES + " frames");
+    }
+
+    private boolean anySettling() {
+        for (int i = 0; i < mList.getChildCount(); i++) {
+            if (((SlideWrapper) mList.getChildAt(i)).isSettling()) return true;
+        }
+        return false;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    //当前线程累计分配的字节数，JVM不支持时返回-1，不检查分配预算
+    private static long threadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) return -1;
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    //统计测量次数的wrapper
+    private static class CountingWrapper extends SlideWrapper {
+
+        static int sMeasures;
+
+        CountingWrapper(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            sMeasures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    //统计创建了几组侧滑view的factory
+    private static class CountingFactory extends SlideWrapper.TextViewFactory {
+
+        int mCreated;
+
+        @Override
+        public List<View> getView(Context context) {
+            mCreated++;
+            return super.getView(context);
+        }
+    }
+
+    private static class RowAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final SlideConfig mConfig;
+        private final SlideWrapper.ViewFactory mFactory;
+        private final SlideControlPool mPool;
+        private final SlideCoordinator mCoordinator;
+        int mCreated;
+        int mBound;
+
+        RowAdapter(SlideConfig config, SlideWrapper.ViewFactory factory, SlideControlPool pool,
+                   SlideCoordinator coordinator) {
+            mConfig = config;
+            mFactory = factory;
+            mPool = pool;
+            mCoordinator = coordinator;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            mCreated++;
+            Context context = parent.getContext();
+            CountingWrapper wrapper = new CountingWrapper(context);
+            wrapper.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT));
+            wrapper.setConfig(mConfig);
+            wrapper.setCoordinator(mCoordinator);
+            TextView content = new TextView(context);
+            wrapper.addView(content, new SlideWrapper.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT_PX));
+            if (mFactory != null) {
+                wrapper.setControlPool(mPool);
+                wrapper.setViewFactory(mFactory);
+            } else {
+                //和xml中android:tag="ctrl"声明的侧滑view一样
+                for (int i = 0; i < 2; i++) {
+                    TextView ctrl = new TextView(context);
+                    ctrl.setTag("ctrl");
+                    ctrl.setBackgroundColor(i == 0 ? Color.LTGRAY : Color.RED);
+                    wrapper.addView(ctrl, new SlideWrapper.LayoutParams(CONTROL_WIDTH_PX,
+                            ViewGroup.LayoutParams.MATCH_PARENT));
+                }
+            }
+            return new RecyclerView.ViewHolder(wrapper) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            mBound++;
+            SlideWrapper wrapper = (SlideWrapper) holder.itemView;
+            ((TextView) wrapper.getChildAt(0)).setText("row " + position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return ROWS;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.jupiter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.view.MotionEvent;
+import org.junit.Test;
+
+/**
+ * SlideTouchTrace的编码、解码测试，只用到MotionEvent的常量，可以直接在JVM上运行
+ */
+public class SlideTouchTraceTest {
+
+    private static final float DELTA = 0.0001f;
+
+    private static void recordSwipe(SlideTouchTrace trace) {
+        trace.record(1000, MotionEvent.ACTION_DOWN, 1, 200, 40, 210, 540);
+        trace.record(1016, MotionEvent.ACTION_MOVE, 1, 150.5f, 42, 160.5f, 542);
+        trace.record(1040, MotionEvent.ACTION_UP, 1, 80, 43, 90, 543);
+    }
+
+    @Test
+    public void recordsTimeRelativeToFirstEvent() {
+        SlideTouchTrace trace = new SlideTouchTrace();
+        recordSwipe(trace);
+        assertEquals(3, trace.getEventCount());
+        assertEquals(0, trace.getTime(0));
+        assertEquals(16, trace.getTime(1));
+        assertEquals(40, trace.getTime(2));
+        assertEquals(MotionEvent.ACTION_MOVE, trace.getAction(1));
+        assertEquals(150.5f, trace.getX(1), DELTA);
+        assertEquals(42, trace.getY(1), DELTA);
+        assertEquals(160.5f, trace.getRawX(1), DELTA);
+        assertEquals(542, trace.getRawY(1), DELTA);
+    }
+
+    @Test
+    public void roundTripsThroughByteArray() {
+        SlideTouchTrace trace = new SlideTouchTrace();
+        recordSwipe(trace);
+        byte[] data = trace.toByteArray();
+        assertEquals(4 + 3 * 21, data.length);
+        SlideTouchTrace copy = SlideTouchTrace.fromByteArray(data);
+        assertEquals(trace.getEventCount(), copy.getEventCount());
+        for (int i = 0; i < trace.getEventCount(); i++) {
+            assertEquals(trace.getTime(i), copy.getTime(i));
+            assertEquals(trace.getAction(i), copy.getAction(i));
+            assertEquals(trace.getX(i), copy.getX(i), DELTA);
+            assertEquals(trace.getY(i), copy.getY(i), DELTA);
+            assertEquals(trace.getRawX(i), copy.getRawX(i), DELTA);
+            assertEquals(trace.getRawY(i), copy.getRawY(i), DELTA);
+        }
+    }
+
+    @Test
+    public void skipsMultiTouchEvents() {
+        SlideTouchTrace trace = new SlideTouchTrace();
+        trace.record(0, MotionEvent.ACTION_DOWN, 1, 10, 10, 10, 10);
+        trace.record(5, MotionEvent.ACTION_POINTER_DOWN, 2, 10, 10, 10, 10);
+        trace.record(10, MotionEvent.ACTION_MOVE, 2, 20, 10, 20, 10);
+        trace.record(15, MotionEvent.ACTION_POINTER_UP, 2, 20, 10, 20, 10);
+        trace.record(20, MotionEvent.ACTION_UP, 1, 20, 10, 20, 10);
+        assertEquals(2, trace.getEventCount());
+        assertEquals(MotionEvent.ACTION_DOWN, trace.getAction(0));
+        assertEquals(MotionEvent.ACTION_UP, trace.getAction(1));
+    }
+
+    @Test
+    public void importedTraceIsReadOnlyUntilCleared() {
+        SlideTouchTrace source = new SlideTouchTrace();
+        recordSwipe(source);
+        SlideTouchTrace trace = SlideTouchTrace.fromByteArray(source.toByteArray());
+        assertTrue(trace.isReadOnly());
+        trace.record(5000, MotionEvent.ACTION_DOWN, 1, 0, 0, 0, 0);
+        assertEquals(3, trace.getEventCount());
+
+        trace.clear();
+        assertFalse(trace.isReadOnly());
+        trace.record(5000, MotionEvent.ACTION_DOWN, 1, 0, 0, 0, 0);
+        assertEquals(1, trace.getEventCount());
+        assertEquals(0, trace.getTime(0));
+    }
+
+    @Test
+    public void stopsAtMaxEvents() {
+        SlideTouchTrace trace = new SlideTouchTrace(2);
+        recordSwipe(trace);
+        assertEquals(2, trace.getEventCount());
+        assertEquals(4 + 2 * 21, trace.toByteArray().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongHeader() {
+        byte[] data = new SlideTouchTrace().toByteArray();
+        data[0] = 0;
+        SlideTouchTrace.fromByteArray(data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedData() {
+        SlideTouchTrace trace = new SlideTouchTrace();
+        recordSwipe(trace);
+        byte[] data = trace.toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        SlideTouchTrace.fromByteArray(truncated);
+    }
+}